@@ -0,0 +1,8 @@
+# ClassifiedObservable creates the generated dispatchers through their no argument constructor, looking them up by
+# the name of their classifiers, FooDispatcher for FooClassifiers
+-keep class * extends com.appolition.classifiable.observables.ClassifierDispatcher {
+    public <init>();
+}
+
+-if class **Dispatcher extends com.appolition.classifiable.observables.ClassifierDispatcher
+-keepnames class <1>Classifiers
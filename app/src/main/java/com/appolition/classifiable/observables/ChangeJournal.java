@@ -0,0 +1,620 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable.observables;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An append only journal of property changes, kept in memory mapped segment files of fixed width records
+ *
+ * Observables are attached with an object id, their notifications are then recorded as a timestamp, the object
+ * id, the classifier ordinal, a payload type and the old and new primitive values. Appending a record only writes
+ * into the mapped buffer, a new segment is created and mapped when the current one is full. The operating system
+ * writes the pages back on its own, flush() and close() force them to the storage device
+ *
+ * The segments of a closed journal can be read with a Reader, which visits the records in order or replays them
+ * into observables to reproduce a recorded session
+ */
+public final class ChangeJournal implements Closeable {
+    /**
+     * The width of a record in bytes
+     */
+    public static final int RECORD_SIZE = 40;
+
+    /**
+     * The payload type of a notification without values
+     */
+    public static final int TYPE_NONE = 1;
+
+    /**
+     * The payload type of an int notification
+     */
+    public static final int TYPE_INT = 2;
+
+    /**
+     * The payload type of a long notification
+     */
+    public static final int TYPE_LONG = 3;
+
+    /**
+     * The payload type of a double notification, the values are stored as raw long bits
+     */
+    public static final int TYPE_DOUBLE = 4;
+
+    /**
+     * The payload type of a boolean notification, the values are stored as 0 or 1
+     */
+    public static final int TYPE_BOOLEAN = 5;
+
+    /**
+     * The offset of the timestamp in a record
+     */
+    private static final int TIMESTAMP_OFFSET = 0;
+
+    /**
+     * The offset of the object id in a record
+     */
+    private static final int OBJECT_ID_OFFSET = 8;
+
+    /**
+     * The offset of the classifier ordinal in a record
+     */
+    private static final int ORDINAL_OFFSET = 16;
+
+    /**
+     * The offset of the payload type in a record, 0 marks the end of the records of a segment
+     */
+    private static final int TYPE_OFFSET = 20;
+
+    /**
+     * The offset of the old value in a record
+     */
+    private static final int OLD_VALUE_OFFSET = 24;
+
+    /**
+     * The offset of the new value in a record
+     */
+    private static final int NEW_VALUE_OFFSET = 32;
+
+    /**
+     * The prefix of segment file names
+     */
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    /**
+     * The suffix of segment file names
+     */
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    /**
+     * The directory holding the segments
+     */
+    private final File directory;
+
+    /**
+     * The size of a segment in bytes
+     */
+    private final int segmentSize;
+
+    /**
+     * The index of the current segment
+     */
+    private int segmentIndex;
+
+    /**
+     * The buffer of the current segment, null once closed
+     */
+    private MappedByteBuffer segment;
+
+    /**
+     * The offset of the next record in the current segment
+     */
+    private int position;
+
+    /**
+     * The number of records dropped because the journal was closed or a segment could not be mapped
+     */
+    private long droppedCount;
+
+    /**
+     * The error that stopped the journal from mapping a segment, null if none occurred
+     */
+    private IOException failure;
+
+    /**
+     * Constructs a journal
+     *
+     * @param directory, the directory holding the segments
+     * @param segmentSize, the size of a segment in bytes
+     * @param segmentIndex, the index of the first segment to write
+     *
+     * @throws IOException, if the first segment cannot be mapped
+     */
+    private ChangeJournal(File directory, int segmentSize, int segmentIndex) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segmentIndex = segmentIndex;
+        this.segment = map(segmentFile(directory, segmentIndex), segmentSize);
+    }
+
+    /**
+     * Opens a journal in the specified directory, appending new segments after any existing ones
+     *
+     * @param directory, the directory to keep the segments in, created if missing
+     * @param recordsPerSegment, the number of records a segment holds before the journal rotates to a new one
+     *
+     * @return ChangeJournal, the journal
+     *
+     * @throws IOException, if the directory cannot be created or the first segment cannot be mapped
+     * @throws IllegalArgumentException, if a segment would hold no records or more than 2GB
+     */
+    public static ChangeJournal open(File directory, int recordsPerSegment) throws IOException {
+        if (recordsPerSegment <= 0 || recordsPerSegment > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("recordsPerSegment must be between 1 and " + Integer.MAX_VALUE / RECORD_SIZE);
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+
+        File[] segments = segments(directory);
+
+        return new ChangeJournal(directory, recordsPerSegment * RECORD_SIZE, segments.length == 0 ? 0 : indexOf(segments[segments.length - 1]) + 1);
+    }
+
+    /**
+     * Creates a reader of the segments in the specified directory
+     *
+     * @param directory, the directory holding the segments
+     *
+     * @return Reader, the reader
+     */
+    public static Reader reader(File directory) {
+        return new Reader(directory);
+    }
+
+    /**
+     * Records the notifications of an observable from now on, replacing any sink it had
+     *
+     * @param observable, the observable to record
+     * @param objectId, the id to record its notifications with
+     *
+     * @return ChangeJournal, a reference to this instance
+     */
+    public ChangeJournal attach(ClassifiedObservable<?> observable, long objectId) {
+        observable.setChangeSink(new JournalSink(this, objectId));
+
+        return this;
+    }
+
+    /**
+     * Stops recording the notifications of an observable
+     *
+     * @param observable, the observable to stop recording
+     *
+     * @return ChangeJournal, a reference to this instance
+     */
+    public ChangeJournal detach(ClassifiedObservable<?> observable) {
+        observable.setChangeSink(null);
+
+        return this;
+    }
+
+    /**
+     * Appends a record, rotating to a new segment if the current one is full
+     *
+     * The record is dropped and counted if the journal is closed or the new segment cannot be mapped, so a failing
+     * journal never fails the notification of an attached observable
+     *
+     * @param objectId, the id of the notified object
+     * @param ordinal, the ordinal of the notified classifier
+     * @param type, the payload type
+     * @param oldValue, the old value as long bits
+     * @param newValue, the new value as long bits
+     */
+    synchronized void append(long objectId, int ordinal, int type, long oldValue, long newValue) {
+        if (segment != null && position == segmentSize) {
+            rotate();
+        }
+
+        if (segment == null) {
+            ++droppedCount;
+
+            return;
+        }
+
+        segment.putLong(position + TIMESTAMP_OFFSET, System.currentTimeMillis());
+        segment.putLong(position + OBJECT_ID_OFFSET, objectId);
+        segment.putInt(position + ORDINAL_OFFSET, ordinal);
+        segment.putLong(position + OLD_VALUE_OFFSET, oldValue);
+        segment.putLong(position + NEW_VALUE_OFFSET, newValue);
+        segment.putInt(position + TYPE_OFFSET, type);
+
+        position += RECORD_SIZE;
+    }
+
+    /**
+     * Forces the records written so far to the storage device
+     *
+     * @return ChangeJournal, a reference to this instance
+     */
+    public synchronized ChangeJournal flush() {
+        if (segment != null) {
+            segment.force();
+        }
+
+        return this;
+    }
+
+    /**
+     * Gets the number of records dropped because the journal was closed or a segment could not be mapped
+     *
+     * @return long, the number of dropped records
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Gets the error that stopped the journal, after which every record is dropped
+     *
+     * @return IOException, the error that occurred mapping a segment, null if none occurred
+     */
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Forces the records written so far to the storage device and stops accepting records, the notifications of
+     * observables that are still attached are dropped and counted
+     */
+    @Override
+    public synchronized void close() {
+        flush();
+
+        segment = null;
+    }
+
+    /**
+     * Forces the current segment and maps the next one, records the error and stops the journal if it cannot be
+     * mapped
+     */
+    private void rotate() {
+        segment.force();
+
+        try {
+            segment = map(segmentFile(directory, ++segmentIndex), segmentSize);
+
+        } catch (IOException excpt) {
+            segment = null;
+            failure = excpt;
+
+            return;
+        }
+
+        position = 0;
+    }
+
+    /**
+     * Maps a segment file for writing
+     *
+     * @param file, the segment file
+     * @param size, the size of the segment in bytes
+     *
+     * @return MappedByteBuffer, the mapped segment
+     *
+     * @throws IOException, if the file cannot be mapped
+     */
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            return access.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Gets the file of a segment
+     *
+     * @param directory, the directory holding the segments
+     * @param index, the index of the segment
+     *
+     * @return File, the segment file
+     */
+    private static File segmentFile(File directory, int index) {
+        return new File(directory, String.format(Locale.US, "%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Lists the segment files of a directory in the order they were written
+     *
+     * @param directory, the directory holding the segments
+     *
+     * @return File[], the segment files
+     */
+    private static File[] segments(File directory) {
+        File[] segments = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+
+        if (segments == null) {
+            return new File[0];
+        }
+
+        Arrays.sort(segments, (first, second) -> Integer.compare(indexOf(first), indexOf(second)));
+
+        return segments;
+    }
+
+    /**
+     * Gets the index of a segment file
+     *
+     * @param segment, the segment file
+     *
+     * @return int, the index of the segment
+     */
+    private static int indexOf(File segment) {
+        String name = segment.getName();
+
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * The sink of an attached observable
+     */
+    private static final class JournalSink implements ChangeSink {
+        /**
+         * The journal to append to
+         */
+        private final ChangeJournal journal;
+
+        /**
+         * The id of the observable
+         */
+        private final long objectId;
+
+        /**
+         * Constructs a sink
+         *
+         * @param journal, the journal to append to
+         * @param objectId, the id of the observable
+         */
+        JournalSink(ChangeJournal journal, long objectId) {
+            this.journal = journal;
+            this.objectId = objectId;
+        }
+
+        @Override
+        public void onChange(int ordinal) {
+            journal.append(objectId, ordinal, TYPE_NONE, 0L, 0L);
+        }
+
+        @Override
+        public void onChange(int ordinal, int oldValue, int newValue) {
+            journal.append(objectId, ordinal, TYPE_INT, oldValue, newValue);
+        }
+
+        @Override
+        public void onChange(int ordinal, long oldValue, long newValue) {
+            journal.append(objectId, ordinal, TYPE_LONG, oldValue, newValue);
+        }
+
+        @Override
+        public void onChange(int ordinal, double oldValue, double newValue) {
+            journal.append(objectId, ordinal, TYPE_DOUBLE, Double.doubleToRawLongBits(oldValue), Double.doubleToRawLongBits(newValue));
+        }
+
+        @Override
+        public void onChange(int ordinal, boolean oldValue, boolean newValue) {
+            journal.append(objectId, ordinal, TYPE_BOOLEAN, oldValue ? 1L : 0L, newValue ? 1L : 0L);
+        }
+    }
+
+    /**
+     * Reads the records of a journal in the order they were written
+     */
+    public static final class Reader {
+        /**
+         * The directory holding the segments
+         */
+        private final File directory;
+
+        /**
+         * The observables to replay into by object id
+         */
+        private final Map<Long, Binding<?>> bindings = new HashMap<>();
+
+        /**
+         * Constructs a reader
+         *
+         * @param directory, the directory holding the segments
+         */
+        Reader(File directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Binds an object id to the observable its records are replayed into
+         *
+         * @param objectId, the id the records were written with
+         * @param observable, the observable to notify
+         * @param classifiersClass, the class of the classifiers of the observable
+         * @param <ClassifiersType>, the type of classifiers of the observable
+         *
+         * @return Reader, a reference to this instance
+         */
+        public <ClassifiersType extends Enum<ClassifiersType>> Reader bind(long objectId, ClassifiedObservable<ClassifiersType> observable, Class<ClassifiersType> classifiersClass) {
+            bindings.put(objectId, new Binding<>(observable, classifiersClass.getEnumConstants()));
+
+            return this;
+        }
+
+        /**
+         * Visits every record in the order it was written
+         *
+         * @param visitor, the visitor to call for each record
+         *
+         * @return long, the number of records visited
+         *
+         * @throws IOException, if a segment cannot be read
+         */
+        public long forEach(RecordVisitor visitor) throws IOException {
+            long count = 0;
+
+            for (File file : segments(directory)) {
+                MappedByteBuffer segment;
+
+                try (RandomAccessFile access = new RandomAccessFile(file, "r")) {
+                    segment = access.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, access.length());
+                }
+
+                for (int position = 0; position + RECORD_SIZE <= segment.capacity(); position += RECORD_SIZE) {
+                    int type = segment.getInt(position + TYPE_OFFSET);
+
+                    if (type == 0) {
+                        break;
+                    }
+
+                    visitor.visit(segment.getLong(position + TIMESTAMP_OFFSET), segment.getLong(position + OBJECT_ID_OFFSET),
+                            segment.getInt(position + ORDINAL_OFFSET), type,
+                            segment.getLong(position + OLD_VALUE_OFFSET), segment.getLong(position + NEW_VALUE_OFFSET));
+
+                    ++count;
+                }
+            }
+
+            return count;
+        }
+
+        /**
+         * Notifies the bound observables of every record in the order it was written, records of unbound object
+         * ids and records whose ordinal is not a classifier of the bound observable are skipped
+         *
+         * @return long, the number of records replayed
+         *
+         * @throws IOException, if a segment cannot be read
+         */
+        public long replay() throws IOException {
+            long[] replayed = new long[1];
+
+            forEach((timestamp, objectId, ordinal, type, oldValue, newValue) -> {
+                Binding<?> binding = bindings.get(objectId);
+
+                if (binding != null && binding.replay(ordinal, type, oldValue, newValue)) {
+                    ++replayed[0];
+                }
+            });
+
+            return replayed[0];
+        }
+    }
+
+    /**
+     * An observable bound to an object id for replay
+     *
+     * @param <ClassifiersType>, the type of classifiers of the observable
+     */
+    private static final class Binding<ClassifiersType extends Enum<ClassifiersType>> {
+        /**
+         * The observable to notify
+         */
+        private final ClassifiedObservable<ClassifiersType> observable;
+
+        /**
+         * The classifiers indexed by ordinal
+         */
+        private final ClassifiersType[] classifiers;
+
+        /**
+         * Constructs a binding
+         *
+         * @param observable, the observable to notify
+         * @param classifiers, the classifiers indexed by ordinal
+         */
+        Binding(ClassifiedObservable<ClassifiersType> observable, ClassifiersType[] classifiers) {
+            this.observable = observable;
+            this.classifiers = classifiers;
+        }
+
+        /**
+         * Notifies the observable of a record
+         *
+         * @param ordinal, the ordinal of the notified classifier
+         * @param type, the payload type
+         * @param oldValue, the old value as long bits
+         * @param newValue, the new value as long bits
+         *
+         * @return boolean, true if the observable was notified, false if the ordinal is not one of its classifiers
+         */
+        boolean replay(int ordinal, int type, long oldValue, long newValue) {
+            if (ordinal < 0 || ordinal >= classifiers.length) {
+                return false;
+            }
+
+            ClassifiersType classifier = classifiers[ordinal];
+
+            switch (type) {
+                case TYPE_INT:
+                    observable.notifyPropertyChanged(classifier, (int) oldValue, (int) newValue);
+                    break;
+
+                case TYPE_LONG:
+                    observable.notifyPropertyChanged(classifier, oldValue, newValue);
+                    break;
+
+                case TYPE_DOUBLE:
+                    observable.notifyPropertyChanged(classifier, Double.longBitsToDouble(oldValue), Double.longBitsToDouble(newValue));
+                    break;
+
+                case TYPE_BOOLEAN:
+                    observable.notifyPropertyChanged(classifier, oldValue != 0L, newValue != 0L);
+                    break;
+
+                default:
+                    observable.notifyPropertyChanged(classifier);
+                    break;
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * A visitor of journal records
+     */
+    public interface RecordVisitor {
+        /**
+         * Called for each record
+         *
+         * @param timestamp, the time of the notification in milliseconds since the epoch
+         * @param objectId, the id of the notified object
+         * @param ordinal, the ordinal of the notified classifier
+         * @param type, the payload type, one of the TYPE_ constants
+         * @param oldValue, the old value as long bits, 0 for TYPE_NONE
+         * @param newValue, the new value as long bits, 0 for TYPE_NONE
+         */
+        void visit(long timestamp, long objectId, int ordinal, int type, long oldValue, long newValue);
+    }
+}
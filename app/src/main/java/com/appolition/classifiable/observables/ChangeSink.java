@@ -0,0 +1,70 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable.observables;
+
+/**
+ * Receives the notifications of a ClassifiedObservable as they are made, see ClassifiedObservable.setChangeSink()
+ *
+ * The methods are called on the notifying thread before any callback, so implementations must be cheap
+ */
+public interface ChangeSink {
+    /**
+     * Called when a property is notified without values
+     *
+     * @param ordinal, the ordinal of the notified classifier
+     */
+    void onChange(int ordinal);
+
+    /**
+     * Called when an int property is notified
+     *
+     * @param ordinal, the ordinal of the notified classifier
+     * @param oldValue, the value before the change
+     * @param newValue, the value after the change
+     */
+    void onChange(int ordinal, int oldValue, int newValue);
+
+    /**
+     * Called when a long property is notified
+     *
+     * @param ordinal, the ordinal of the notified classifier
+     * @param oldValue, the value before the change
+     * @param newValue, the value after the change
+     */
+    void onChange(int ordinal, long oldValue, long newValue);
+
+    /**
+     * Called when a double property is notified
+     *
+     * @param ordinal, the ordinal of the notified classifier
+     * @param oldValue, the value before the change
+     * @param newValue, the value after the change
+     */
+    void onChange(int ordinal, double oldValue, double newValue);
+
+    /**
+     * Called when a boolean property is notified
+     *
+     * @param ordinal, the ordinal of the notified classifier
+     * @param oldValue, the value before the change
+     * @param newValue, the value after the change
+     */
+    void onChange(int ordinal, boolean oldValue, boolean newValue);
+}
@@ -18,10 +18,16 @@
 
 package com.appolition.classifiable.observables;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
@@ -39,10 +45,157 @@ public class ClassifiedObservable<ClassifiersType extends Enum<ClassifiersType>>
     private static final int _ALL = 0;
 
     /**
-     * The map of classifiers and the callbacks to notify on property changes
+     * The number of ordinals tracked by a word of the dirty mask
+     */
+    private static final int WORD_SIZE = 64;
+
+    /**
+     * The number of deliveries a trampolined cascade may make unless another limit is set
+     */
+    public static final int DEFAULT_CASCADE_LIMIT = 1024;
+
+    /**
+     * Passes int values to OnIntPropertyChangedCallback callbacks
+     */
+    private static final ValueDelivery INT_VALUES = (target, oldBits, newBits, oldObject, newObject) -> {
+        if (!(target instanceof OnIntPropertyChangedCallback)) {
+            return false;
+        }
+
+        ((OnIntPropertyChangedCallback) target).onPropertyChanged((int) oldBits, (int) newBits);
+
+        return true;
+    };
+
+    /**
+     * Passes long values to OnLongPropertyChangedCallback callbacks
+     */
+    private static final ValueDelivery LONG_VALUES = (target, oldBits, newBits, oldObject, newObject) -> {
+        if (!(target instanceof OnLongPropertyChangedCallback)) {
+            return false;
+        }
+
+        ((OnLongPropertyChangedCallback) target).onPropertyChanged(oldBits, newBits);
+
+        return true;
+    };
+
+    /**
+     * Passes double values to OnDoublePropertyChangedCallback callbacks
+     */
+    private static final ValueDelivery DOUBLE_VALUES = (target, oldBits, newBits, oldObject, newObject) -> {
+        if (!(target instanceof OnDoublePropertyChangedCallback)) {
+            return false;
+        }
+
+        ((OnDoublePropertyChangedCallback) target).onPropertyChanged(Double.longBitsToDouble(oldBits), Double.longBitsToDouble(newBits));
+
+        return true;
+    };
+
+    /**
+     * Passes boolean values to OnBooleanPropertyChangedCallback callbacks
+     */
+    private static final ValueDelivery BOOLEAN_VALUES = (target, oldBits, newBits, oldObject, newObject) -> {
+        if (!(target instanceof OnBooleanPropertyChangedCallback)) {
+            return false;
+        }
+
+        ((OnBooleanPropertyChangedCallback) target).onPropertyChanged(oldBits != 0L, newBits != 0L);
+
+        return true;
+    };
+
+    /**
+     * Passes object values to OnObjectPropertyChangedCallback callbacks
+     */
+    @SuppressWarnings("unchecked")
+    private static final ValueDelivery OBJECT_VALUES = (target, oldBits, newBits, oldObject, newObject) -> {
+        if (!(target instanceof OnObjectPropertyChangedCallback)) {
+            return false;
+        }
+
+        ((OnObjectPropertyChangedCallback<Object>) target).onPropertyChanged(oldObject, newObject);
+
+        return true;
+    };
+
+    /**
+     * Updates the dirty bits of the first 64 classifiers
+     */
+    private static final AtomicLongFieldUpdater<ClassifiedObservable<?>> DIRTY_WORD = newDirtyWordUpdater();
+
+    /**
+     * The metrics every observable reports its dispatches to, null when metrics are disabled
+     */
+    private static volatile DispatchMetrics dispatchMetrics;
+
+    /**
+     * The callbacks to notify on property changes, see Registrations for the tiers this may hold
+     *
+     * The registrations are never modified once published, writers replace them with copies under the monitor,
+     * so dispatch takes a snapshot of the volatile reference and invokes the callbacks without holding any lock
      */
     @VisibleForTesting
-    public transient Map<ClassifiersType, List<OnPropertChangedCallback>> callbacks;
+    public transient volatile Object callbacks;
+
+    /**
+     * The callbacks registered for several classifiers at once, null if there are none
+     *
+     * Like callbacks the array is never modified once published
+     */
+    private transient volatile MaskedCallback[] maskedCallbacks;
+
+    /**
+     * The sink every notification of this instance is recorded to, null if notifications are not recorded
+     */
+    private transient volatile ChangeSink changeSink;
+
+    /**
+     * The number of open batches, written while holding the monitor
+     */
+    private transient volatile int batchDepth;
+
+    /**
+     * The classifiers notified while a batch is open, null until a notification is batched, guarded by the monitor
+     */
+    private transient BatchState<ClassifiersType> batchState;
+
+    /**
+     * The queue that hands notifications to the executor, null when callbacks are called on the notifying thread
+     */
+    private transient volatile SerialDispatchQueue<ClassifiersType> dispatchQueue;
+
+    /**
+     * The dirty bits of the first 64 classifiers, the _ALL bit stands for every classifier
+     */
+    private transient volatile long dirtyWord;
+
+    /**
+     * The dirty bits of the classifiers beyond the first 64, null until one of them is notified
+     */
+    private transient volatile AtomicLongArray dirtyOverflow;
+
+    /**
+     * The number of notifications of each classifier by ordinal followed by the number of all notifications, null
+     * until a version is first read or, when only the global version was read, until the next notification
+     */
+    private transient volatile AtomicLongArray versions;
+
+    /**
+     * True once any version of this instance was read, from then on notifications are counted
+     */
+    private transient volatile boolean countsVersions;
+
+    /**
+     * Receives the weak callbacks whose callbacks were collected, null until a weak callback is added
+     */
+    private transient volatile ReferenceQueue<OnPropertChangedCallback> collectedCallbacks;
+
+    /**
+     * The dependencies of derived properties, null if no property is derived
+     */
+    private transient volatile ClassifierDependencies<ClassifiersType> dependencies;
 
     /**
      * Adds a callback for a particular classifier
@@ -54,20 +207,125 @@ public class ClassifiedObservable<ClassifiersType extends Enum<ClassifiersType>>
      */
     public ClassifiedObservable<ClassifiersType> add(ClassifiersType classifier, OnPropertChangedCallback callback) {
         synchronized (this) {
+            purgeCollected();
+
             if (callback != null) {
-                if (callbacks == null) {
-                    callbacks = new HashMap<>();
-                }
+                callbacks = Registrations.add(callbacks, classifier, callback);
+            }
+        }
+
+        return this;
+    }
 
-                List<OnPropertChangedCallback> enumCallbacks = callbacks.get(classifier);
+    /**
+     * Adds a callback for a particular classifier that is called according to the specified policy
+     *
+     * The policy calls the callback through onPropertyChanged(), so a callback taking old and new values is not
+     * passed them
+     *
+     * @param classifier, The classifier of the property to listen to for changes
+     * @param callback, the callback to call on a change to the specified property
+     * @param policy, the policy limiting how often the callback is called, null to call it on every change
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> add(ClassifiersType classifier, OnPropertChangedCallback callback, NotificationPolicy policy) {
+        if (callback == null || policy == null) {
+            return add(classifier, callback);
+        }
 
-                if (enumCallbacks == null) {
-                    enumCallbacks = new ArrayList<>();
+        return add(classifier, policy.wrap(callback));
+    }
 
-                    callbacks.put(classifier, enumCallbacks);
-                }
+    /**
+     * Adds a callback for a particular classifier that is held weakly, so registering it does not keep it alive
+     *
+     * Once the callback is collected its registration is removed during a later add or notification, the caller
+     * must keep a strong reference to the callback for as long as it should be called
+     *
+     * @param classifier, The classifier of the property to listen to for changes
+     * @param callback, the callback to call on a change to the specified property
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> addWeak(ClassifiersType classifier, OnPropertChangedCallback callback) {
+        if (callback == null) {
+            return this;
+        }
+
+        synchronized (this) {
+            if (collectedCallbacks == null) {
+                collectedCallbacks = new ReferenceQueue<>();
+            }
+
+            return add(classifier, new WeakCallback<>(classifier, callback, collectedCallbacks));
+        }
+    }
+
+    /**
+     * Adds a callback for several classifiers that is called at most once per notification, with the mask of
+     * its classifiers that changed
+     *
+     * A notification together with the notifications of the properties derived from it, the notifications
+     * delivered when a batch ends and the notifications delivered by one run of the executor each call the
+     * callback once. A _ALL notification passes the mask of all the classifiers of the callback
+     *
+     * @param classifiers, the classifiers of the properties to listen to for changes, the ordinals must be below 64
+     * @param callback, the callback to call on a change to any of the specified properties
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     *
+     * @throws IllegalArgumentException, if a classifier has an ordinal of 64 or more
+     */
+    public ClassifiedObservable<ClassifiersType> add(EnumSet<ClassifiersType> classifiers, OnClassifiersChangedCallback callback) {
+        long mask = 0L;
+
+        for (ClassifiersType classifier : classifiers) {
+            if (classifier.ordinal() >= WORD_SIZE) {
+                throw new IllegalArgumentException(classifier + " has an ordinal beyond the " + WORD_SIZE + " supported by masks");
+            }
+
+            mask |= 1L << classifier.ordinal();
+        }
+
+        if (callback == null || mask == 0L) {
+            return this;
+        }
+
+        synchronized (this) {
+            MaskedCallback[] current = maskedCallbacks;
+
+            MaskedCallback[] updated = current == null ? new MaskedCallback[1] : Arrays.copyOf(current, current.length + 1);
+
+            updated[updated.length - 1] = new MaskedCallback(mask, callback);
 
-                enumCallbacks.add(callback);
+            maskedCallbacks = updated;
+        }
+
+        return this;
+    }
+
+    /**
+     * Removes a callback added for several classifiers
+     *
+     * @param callback, the callback to remove
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> remove(OnClassifiersChangedCallback callback) {
+        synchronized (this) {
+            MaskedCallback[] current = maskedCallbacks;
+
+            if (current == null) {
+                return this;
+            }
+
+            for (int i = 0; i < current.length; ++i) {
+                if (current[i].callback.equals(callback)) {
+                    maskedCallbacks = withoutMasked(current, i, 0L);
+
+                    return this;
+                }
             }
         }
 
@@ -85,25 +343,15 @@ public class ClassifiedObservable<ClassifiersType extends Enum<ClassifiersType>>
     public ClassifiedObservable<ClassifiersType> remove(ClassifiersType classifier, @NonNull OnPropertChangedCallback callback) {
         synchronized (this) {
             if (callback != null) {
-                if (callbacks == null) {
-                    return this;
-                }
+                int ordinal = classifier.ordinal();
 
-                List<OnPropertChangedCallback> enumCallbacks = callbacks.get(classifier);
+                int index = indexOf(callbacks, ordinal, callback);
 
-                if (enumCallbacks == null) {
+                if (index < 0) {
                     return this;
                 }
 
-                enumCallbacks.remove(callback);
-
-                if (enumCallbacks.size() == 0) {
-                    callbacks.remove(classifier);
-                }
-
-                if (callbacks.size() == 0) {
-                    callbacks = null;
-                }
+                callbacks = Registrations.remove(callbacks, ordinal, index);
             }
         }
 
@@ -117,19 +365,16 @@ public class ClassifiedObservable<ClassifiersType extends Enum<ClassifiersType>>
      */
     public ClassifiedObservable<ClassifiersType> clear() {
         synchronized (this) {
-            if (callbacks == null) {
-                return this;
-            }
-
-            callbacks.clear();
             callbacks = null;
+            maskedCallbacks = null;
         }
 
         return this;
     }
 
     /**
-     * Removes all callback for the specified classifier
+     * Removes all callback for the specified classifier, callbacks added for several classifiers stop listening to
+     * it and are removed if it was the last one they listened to
      *
      * @param classifier, the classifier to clear all callbacks
      *
@@ -137,15 +382,15 @@ public class ClassifiedObservable<ClassifiersType extends Enum<ClassifiersType>>
      */
     public ClassifiedObservable<ClassifiersType> clear(ClassifiersType classifier) {
         synchronized (this) {
-            if (callbacks == null || !callbacks.containsKey(classifier)) {
-                return this;
+            if (maskedCallbacks != null && classifier.ordinal() < WORD_SIZE) {
+                maskedCallbacks = withoutMasked(maskedCallbacks, -1, 1L << classifier.ordinal());
             }
 
-            callbacks.remove(classifier);
-
-            if (callbacks.size() == 0) {
-                callbacks = null;
+            if (Registrations.count(callbacks, classifier.ordinal()) == 0) {
+                return this;
             }
+
+            callbacks = Registrations.clear(callbacks, classifier.ordinal());
         }
 
         return this;
@@ -154,63 +399,1363 @@ public class ClassifiedObservable<ClassifiersType extends Enum<ClassifiersType>>
     /**
      * Notifies all callbacks when the specified property changes
      *
+     * The callbacks are invoked on a snapshot of the registrations without holding the monitor, so a callback
+     * removed on another thread may still receive a notification that was already in flight
+     *
+     * While a batch is open the notification is recorded and delivered when the outermost batch ends. The
+     * classifier is marked dirty whether or not any callbacks are registered
+     *
      * @param classifier, the classifier to use for property change notifications
      *
      * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
      */
     public ClassifiedObservable<ClassifiersType> notifyPropertyChanged(ClassifiersType classifier) {
-        synchronized (this) {
-            if (callbacks == null) {
-                return this;
-            }
+        ChangeSink sink = changeSink;
 
-            if (classifier.ordinal() == _ALL) {
-                if (callbacks.get(classifier) != null) {
-                    for (OnPropertChangedCallback callback : callbacks.get(classifier)) {
-                        if (callback != null) {
-                            callback.onPropertyChanged();
-                        }
-                    }
-                }
+        if (sink != null) {
+            sink.onChange(classifier.ordinal());
+        }
 
-                for (Map.Entry<ClassifiersType, List<OnPropertChangedCallback>> entry : callbacks.entrySet()) {
-                    if ((entry.getValue() == null || entry.getValue().size() == 0) && entry.getKey().ordinal() != _ALL) {
-                        continue;
-                    }
+        notifyWave(classifier);
 
-                    for (OnPropertChangedCallback callback : entry.getValue()) {
-                        if (callback != null) {
-                            callback.onPropertyChanged();
-                        }
-                    }
-                }
+        return this;
+    }
 
-                return this;
-            }
+    /**
+     * Records the notifications of this instance to the specified sink as they are made, once per call to
+     * notifyPropertyChanged and before any callback is called, the notifications of derived properties are not
+     * recorded since notifying the recorded property notifies them again
+     *
+     * @param sink, the sink to record to, null to stop recording
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> setChangeSink(ChangeSink sink) {
+        this.changeSink = sink;
 
-            List<OnPropertChangedCallback> enumCallbacks = callbacks.get(classifier);
+        return this;
+    }
 
-            if (enumCallbacks == null || enumCallbacks.size() == 0) {
-                return this;
-            }
+    /**
+     * Notifies the callbacks of the specified property and of the properties derived from it
+     *
+     * @param classifier, the classifier to use for property change notifications
+     */
+    private void notifyWave(ClassifiersType classifier) {
+        long delivered = notifySingle(classifier) | notifyDependents(classifier);
 
-            for (OnPropertChangedCallback callback : enumCallbacks) {
-                if (callback != null) {
-                    callback.onPropertyChanged();
-                }
-            }
+        if (delivered != 0L) {
+            dispatchMasked(delivered);
         }
+    }
+
+    /**
+     * Declares which properties are derived from which, notifying a property then also notifies the properties
+     * derived from it, once each and in topological order
+     *
+     * @param dependencies, the dependencies to use, null if no property is derived
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> setDependencies(ClassifierDependencies<ClassifiersType> dependencies) {
+        this.dependencies = dependencies;
 
         return this;
     }
 
     /**
-     * A callback to use for property change notifications
+     * Notifies the callbacks of the specified property without notifying the properties derived from it, the
+     * callbacks added for several classifiers are left to the caller
+     *
+     * @param classifier, the classifier to use for property change notifications
+     *
+     * @return long, the bit of the classifier if its callbacks were called on this thread, 0 otherwise
      */
-    public interface OnPropertChangedCallback {
-        /**
-         * Called when the specified property changes
-         */
-        void onPropertyChanged();
+    private long notifySingle(ClassifiersType classifier) {
+        markDirty(classifier);
+
+        if (countsVersions) {
+            incrementVersion(classifier);
+        }
+
+        if (collectedCallbacks != null) {
+            purgeCollected();
+        }
+
+        if (batchDepth > 0 && deferToBatch(classifier)) {
+            return 0L;
+        }
+
+        SerialDispatchQueue<ClassifiersType> queue = dispatchQueue;
+
+        if (queue != null) {
+            queue.enqueue(classifier);
+
+            return 0L;
+        }
+
+        dispatch(classifier);
+
+        return maskBit(classifier.ordinal());
+    }
+
+    /**
+     * Notifies the callbacks of the properties derived from the specified property, the callbacks added for
+     * several classifiers are left to the caller
+     *
+     * @param classifier, the classifier of the property that changed
+     *
+     * @return long, the bits of the derived classifiers whose callbacks were called on this thread
+     */
+    private long notifyDependents(ClassifiersType classifier) {
+        ClassifierDependencies<ClassifiersType> snapshot = dependencies;
+
+        if (snapshot == null) {
+            return 0L;
+        }
+
+        long delivered = 0L;
+
+        for (ClassifiersType dependent : snapshot.dependentsOf(classifier)) {
+            delivered |= notifySingle(dependent);
+        }
+
+        return delivered;
+    }
+
+    /**
+     * Notifies all callbacks when the specified int property changes, passing the old and new value to the
+     * OnIntPropertyChangedCallback callbacks without boxing
+     *
+     * The values are delivered on the notifying thread even while a batch is open or an executor is set, only
+     * the callbacks without values are batched or queued. Callbacks added with a NotificationPolicy are called
+     * through onPropertyChanged() without the values
+     *
+     * @param classifier, the classifier to use for property change notifications
+     * @param oldValue, the value before the change
+     * @param newValue, the value after the change
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> notifyPropertyChanged(ClassifiersType classifier, int oldValue, int newValue) {
+        ChangeSink sink = changeSink;
+
+        if (sink != null) {
+            sink.onChange(classifier.ordinal(), oldValue, newValue);
+        }
+
+        notifyWithValues(classifier, INT_VALUES, oldValue, newValue, null, null);
+
+        return this;
+    }
+
+    /**
+     * Notifies all callbacks when the specified long property changes, passing the old and new value to the
+     * OnLongPropertyChangedCallback callbacks without boxing
+     *
+     * The values are delivered on the notifying thread even while a batch is open or an executor is set, only
+     * the callbacks without values are batched or queued. Callbacks added with a NotificationPolicy are called
+     * through onPropertyChanged() without the values
+     *
+     * @param classifier, the classifier to use for property change notifications
+     * @param oldValue, the value before the change
+     * @param newValue, the value after the change
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> notifyPropertyChanged(ClassifiersType classifier, long oldValue, long newValue) {
+        ChangeSink sink = changeSink;
+
+        if (sink != null) {
+            sink.onChange(classifier.ordinal(), oldValue, newValue);
+        }
+
+        notifyWithValues(classifier, LONG_VALUES, oldValue, newValue, null, null);
+
+        return this;
+    }
+
+    /**
+     * Notifies all callbacks when the specified double property changes, passing the old and new value to the
+     * OnDoublePropertyChangedCallback callbacks without boxing
+     *
+     * The values are delivered on the notifying thread even while a batch is open or an executor is set, only
+     * the callbacks without values are batched or queued. Callbacks added with a NotificationPolicy are called
+     * through onPropertyChanged() without the values
+     *
+     * @param classifier, the classifier to use for property change notifications
+     * @param oldValue, the value before the change
+     * @param newValue, the value after the change
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> notifyPropertyChanged(ClassifiersType classifier, double oldValue, double newValue) {
+        ChangeSink sink = changeSink;
+
+        if (sink != null) {
+            sink.onChange(classifier.ordinal(), oldValue, newValue);
+        }
+
+        notifyWithValues(classifier, DOUBLE_VALUES, Double.doubleToRawLongBits(oldValue), Double.doubleToRawLongBits(newValue), null, null);
+
+        return this;
+    }
+
+    /**
+     * Notifies all callbacks when the specified boolean property changes, passing the old and new value to the
+     * OnBooleanPropertyChangedCallback callbacks without boxing
+     *
+     * The values are delivered on the notifying thread even while a batch is open or an executor is set, only
+     * the callbacks without values are batched or queued. Callbacks added with a NotificationPolicy are called
+     * through onPropertyChanged() without the values
+     *
+     * @param classifier, the classifier to use for property change notifications
+     * @param oldValue, the value before the change
+     * @param newValue, the value after the change
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> notifyPropertyChanged(ClassifiersType classifier, boolean oldValue, boolean newValue) {
+        ChangeSink sink = changeSink;
+
+        if (sink != null) {
+            sink.onChange(classifier.ordinal(), oldValue, newValue);
+        }
+
+        notifyWithValues(classifier, BOOLEAN_VALUES, oldValue ? 1L : 0L, newValue ? 1L : 0L, null, null);
+
+        return this;
+    }
+
+    /**
+     * Notifies all callbacks when the specified property changes, passing the old and new value to the
+     * OnObjectPropertyChangedCallback callbacks
+     *
+     * The values are delivered on the notifying thread even while a batch is open or an executor is set, only
+     * the callbacks without values are batched or queued. Callbacks added with a NotificationPolicy are called
+     * through onPropertyChanged() without the values
+     *
+     * @param classifier, the classifier to use for property change notifications
+     * @param oldValue, the value before the change
+     * @param newValue, the value after the change
+     * @param <T>, the type of the property
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public <T> ClassifiedObservable<ClassifiersType> notifyPropertyChanged(ClassifiersType classifier, T oldValue, T newValue) {
+        ChangeSink sink = changeSink;
+
+        if (sink != null) {
+            sink.onChange(classifier.ordinal());
+        }
+
+        notifyWithValues(classifier, OBJECT_VALUES, 0L, 0L, oldValue, newValue);
+
+        return this;
+    }
+
+    /**
+     * Passes the values of a notification to the typed callbacks and notifies the other callbacks the way
+     * notifyPropertyChanged does
+     *
+     * @param classifier, the classifier to use for property change notifications
+     * @param delivery, the delivery of the values to the callbacks of the notified type
+     * @param oldBits, the bits of the primitive value before the change
+     * @param newBits, the bits of the primitive value after the change
+     * @param oldObject, the object value before the change
+     * @param newObject, the object value after the change
+     */
+    private void notifyWithValues(ClassifiersType classifier, ValueDelivery delivery, long oldBits, long newBits, Object oldObject, Object newObject) {
+        boolean inline = deliversInline(classifier);
+
+        Object snapshot = callbacks;
+
+        DispatchMetrics metrics = dispatchMetrics;
+
+        int ordinal = classifier.ordinal();
+
+        int fanOut = 0;
+
+        for (int current = ordinal == _ALL ? 0 : ordinal, last = ordinal == _ALL ? Registrations.slots(snapshot) : ordinal + 1; current < last; ++current) {
+            for (int i = 0, count = Registrations.count(snapshot, current); i < count; ++i) {
+                OnPropertChangedCallback callback = Registrations.get(snapshot, current, i);
+
+                long start = metrics == null ? 0L : System.nanoTime();
+
+                if (!delivery.deliver(unwrapWeak(callback), oldBits, newBits, oldObject, newObject)) {
+                    if (!inline || callback == null) {
+                        continue;
+                    }
+
+                    callback.onPropertyChanged();
+                }
+
+                if (metrics != null) {
+                    metrics.onCallback(classifier, callback, System.nanoTime() - start);
+
+                    ++fanOut;
+                }
+            }
+        }
+
+        if (inline) {
+            if (metrics != null) {
+                metrics.onNotify(classifier, fanOut);
+            }
+
+            dispatchMasked(maskBit(ordinal) | notifyDependents(classifier));
+
+        } else {
+            notifyWave(classifier);
+        }
+    }
+
+    /**
+     * Checks if a notification can be delivered on the notifying thread right away, and if so records it the way
+     * notifyPropertyChanged does before delivering it
+     *
+     * @param classifier, the classifier that was notified
+     *
+     * @return boolean, true if no batch is open and no executor is set
+     */
+    private boolean deliversInline(ClassifiersType classifier) {
+        if (batchDepth > 0 || dispatchQueue != null) {
+            return false;
+        }
+
+        markDirty(classifier);
+
+        if (countsVersions) {
+            incrementVersion(classifier);
+        }
+
+        if (collectedCallbacks != null) {
+            purgeCollected();
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the callback a registration is called for, so a callback wrapped once per classifier is recognized as
+     * the same callback
+     *
+     * @param callback, the registered callback
+     *
+     * @return Object, the innermost wrapped callback, the registration itself if its callback was collected
+     */
+    private static Object identityOf(OnPropertChangedCallback callback) {
+        Object identity = callback;
+
+        while (identity instanceof DelegatingCallback) {
+            OnPropertChangedCallback delegate = ((DelegatingCallback) identity).getDelegate();
+
+            if (delegate == null) {
+                return identity;
+            }
+
+            identity = delegate;
+        }
+
+        return identity;
+    }
+
+    /**
+     * Gets the callback a weak registration refers to
+     *
+     * @param callback, the registered callback
+     *
+     * @return OnPropertChangedCallback, the referred callback for a weak registration, the callback otherwise
+     */
+    private static OnPropertChangedCallback unwrapWeak(OnPropertChangedCallback callback) {
+        return callback instanceof WeakCallback ? ((WeakCallback<?>) callback).get() : callback;
+    }
+
+    /**
+     * Delivers notifications through the specified executor instead of on the notifying thread
+     *
+     * Notifications are delivered one at a time in the order they were raised. A classifier that is still waiting
+     * for delivery is not queued again, and neither are classifiers notified while a _ALL notification is waiting,
+     * so a burst of updates costs one delivery. Notifications already queued when the executor is replaced are
+     * still delivered through the previous executor
+     *
+     * @param executor, the executor to deliver notifications on, null to call callbacks on the notifying thread
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> setExecutor(Executor executor) {
+        synchronized (this) {
+            dispatchQueue = executor == null ? null : new SerialDispatchQueue<>(this, executor, 0);
+        }
+
+        return this;
+    }
+
+    /**
+     * Delivers notifications raised by callbacks after the current delivery instead of recursing into them, with
+     * the default cascade limit
+     *
+     * @param trampolined, true to trampoline notifications, false to call callbacks directly
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> setTrampolined(boolean trampolined) {
+        return setTrampolined(trampolined, DEFAULT_CASCADE_LIMIT);
+    }
+
+    /**
+     * Delivers notifications raised by callbacks after the current delivery instead of recursing into them
+     *
+     * A notification made outside of any delivery is still delivered before notifyPropertyChanged returns. One
+     * made while callbacks run is queued and delivered iteratively once they return, and is dropped if the same
+     * classifier is still waiting, so a cascade neither deepens the stack nor delivers a property twice in a row.
+     * Notifications made on other threads during a cascade are delivered by the thread running it. Values passed
+     * to the typed callbacks are still delivered right away
+     *
+     * Trampolining replaces an executor set with setExecutor(), and the other way around
+     *
+     * @param trampolined, true to trampoline notifications, false to call callbacks directly
+     * @param cascadeLimit, the number of deliveries a cascade may make before it is considered runaway, at which
+     *                      point the pending notifications are dropped and an IllegalStateException is thrown
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     *
+     * @throws IllegalArgumentException, if the cascade limit is not positive
+     */
+    public ClassifiedObservable<ClassifiersType> setTrampolined(boolean trampolined, int cascadeLimit) {
+        if (cascadeLimit <= 0) {
+            throw new IllegalArgumentException("cascadeLimit must be positive");
+        }
+
+        synchronized (this) {
+            dispatchQueue = trampolined ? new SerialDispatchQueue<>(this, Runnable::run, cascadeLimit) : null;
+        }
+
+        return this;
+    }
+
+    /**
+     * Reports the dispatches of every observable to the specified metrics
+     *
+     * Metrics are disabled by default, which costs each dispatch a single check of a static field and no
+     * allocation. Notifications are counted when their callbacks without values are delivered, so a notification
+     * made while a batch is open or an executor is set is counted when the batch ends or the executor delivers it
+     *
+     * @param metrics, the metrics to report to, null to disable metrics
+     */
+    public static void setDispatchMetrics(DispatchMetrics metrics) {
+        dispatchMetrics = metrics;
+    }
+
+    /**
+     * Gets the metrics dispatches are reported to
+     *
+     * @return DispatchMetrics, the metrics, null when metrics are disabled
+     */
+    public static DispatchMetrics getDispatchMetrics() {
+        return dispatchMetrics;
+    }
+
+    /**
+     * Calls the callbacks registered for the specified classifier on the current thread
+     *
+     * @param classifier, the notified classifier
+     */
+    void dispatch(ClassifiersType classifier) {
+        Object snapshot = callbacks;
+
+        DispatchMetrics metrics = dispatchMetrics;
+
+        if (metrics != null) {
+            dispatchMeasured(metrics, snapshot, classifier);
+
+            return;
+        }
+
+        if (snapshot == null) {
+            return;
+        }
+
+        int ordinal = classifier.ordinal();
+
+        if (snapshot instanceof ClassifierDispatcher) {
+            ((ClassifierDispatcher<?>) snapshot).dispatch(ordinal);
+
+            return;
+        }
+
+        if (ordinal == _ALL) {
+            for (int i = 0, slots = Registrations.slots(snapshot); i < slots; ++i) {
+                invoke(snapshot, i);
+            }
+
+            return;
+        }
+
+        invoke(snapshot, ordinal);
+    }
+
+    /**
+     * Calls the callbacks added for several classifiers whose classifiers are among the changed ones, each once
+     *
+     * @param changed, the bits of the changed classifiers, a set _ALL bit stands for every classifier
+     */
+    void dispatchMasked(long changed) {
+        MaskedCallback[] snapshot = maskedCallbacks;
+
+        if (snapshot == null || changed == 0L) {
+            return;
+        }
+
+        boolean all = (changed & 1L << _ALL) != 0;
+
+        for (MaskedCallback registration : snapshot) {
+            long matched = all ? registration.mask : registration.mask & changed;
+
+            if (matched != 0L) {
+                registration.callback.onClassifiersChanged(matched);
+            }
+        }
+    }
+
+    /**
+     * Counts the callbacks registered for the specified classifier
+     *
+     * @param classifier, the classifier to count the callbacks of
+     *
+     * @return int, the number of registered callbacks
+     */
+    @VisibleForTesting
+    public int getCallbackCount(ClassifiersType classifier) {
+        return Registrations.count(callbacks, classifier.ordinal());
+    }
+
+    /**
+     * Checks if the specified property changed since the changes were last drained
+     *
+     * @param classifier, the classifier of the property to check
+     *
+     * @return boolean, true if the property or all properties were notified since the last drain
+     */
+    public boolean isDirty(ClassifiersType classifier) {
+        int ordinal = classifier.ordinal();
+
+        long word = dirtyWord;
+
+        if ((word & 1L << _ALL) != 0) {
+            return true;
+        }
+
+        if (ordinal < WORD_SIZE) {
+            return (word & 1L << ordinal) != 0;
+        }
+
+        AtomicLongArray overflow = dirtyOverflow;
+
+        return overflow != null && (overflow.get(ordinal / WORD_SIZE - 1) & 1L << ordinal) != 0;
+    }
+
+    /**
+     * Gets the dirty bits of the first 64 classifiers, indexed by ordinal
+     *
+     * @return long, the dirty bits, the _ALL bit is set if all properties were notified
+     */
+    public long dirtyMask() {
+        return dirtyWord;
+    }
+
+    /**
+     * Copies the dirty bits of all classifiers into the provided words, indexed by ordinal
+     *
+     * @param words, the words to fill, must hold a bit for every classifier
+     *
+     * @return long[], the filled words
+     */
+    public long[] dirtyMask(long[] words) {
+        words[0] = dirtyWord;
+
+        AtomicLongArray overflow = dirtyOverflow;
+
+        for (int i = 1; i < words.length; ++i) {
+            words[i] = overflow == null || i > overflow.length() ? 0L : overflow.get(i - 1);
+        }
+
+        return words;
+    }
+
+    /**
+     * Atomically gets and clears the dirty bits of the first 64 classifiers
+     *
+     * @return long, the dirty bits before they were cleared, the _ALL bit is set if all properties were notified
+     */
+    public long drainChanges() {
+        return DIRTY_WORD.getAndSet(this, 0L);
+    }
+
+    /**
+     * Gets and clears the dirty bits of all classifiers into the provided words, each word is drained atomically
+     *
+     * @param words, the words to fill, must hold a bit for every classifier
+     *
+     * @return long[], the dirty bits before they were cleared
+     */
+    public long[] drainChanges(long[] words) {
+        words[0] = DIRTY_WORD.getAndSet(this, 0L);
+
+        AtomicLongArray overflow = dirtyOverflow;
+
+        for (int i = 1; i < words.length; ++i) {
+            words[i] = overflow == null || i > overflow.length() ? 0L : overflow.getAndSet(i - 1, 0L);
+        }
+
+        return words;
+    }
+
+    /**
+     * Gets the version of the specified property, which increases each time the property or all properties are
+     * notified, so a reader can detect changes without registering a callback by comparing it to the version it
+     * last saw
+     *
+     * Versions are read without taking the monitor. Counting starts the first time any version of this instance
+     * is read, so earlier notifications are not counted. A notification is counted when it is made, even if a
+     * batch or an executor delays its callbacks
+     *
+     * @param classifier, the classifier of the property, _ALL for the number of notifications of all properties
+     *
+     * @return long, the version of the property
+     */
+    public long version(ClassifiersType classifier) {
+        AtomicLongArray counters = versions;
+
+        if (counters == null) {
+            counters = allocateVersions(classifier);
+        }
+
+        int ordinal = classifier.ordinal();
+
+        return ordinal == _ALL ? counters.get(_ALL) : counters.get(ordinal) + counters.get(_ALL);
+    }
+
+    /**
+     * Gets the global version, which increases each time any property is notified
+     *
+     * Like the versions of the properties, counting starts the first time any version of this instance is read
+     *
+     * @return long, the global version
+     */
+    public long version() {
+        if (!countsVersions) {
+            countsVersions = true;
+        }
+
+        AtomicLongArray counters = versions;
+
+        return counters == null ? 0L : counters.get(counters.length() - 1);
+    }
+
+    /**
+     * Opens a batch, notifications are recorded until the matching call to endBatch() and then delivered once
+     *
+     * Batches nest, only the outermost endBatch() delivers. A batch belongs to the observable rather than the
+     * calling thread, so notifications from other threads are coalesced into it as well
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     */
+    public ClassifiedObservable<ClassifiersType> beginBatch() {
+        synchronized (this) {
+            ++batchDepth;
+        }
+
+        return this;
+    }
+
+    /**
+     * Closes a batch, when the outermost batch closes each callback registered for a notified classifier is
+     * called exactly once, in classifier order or topological order when properties are derived, even when it is
+     * registered for several of them, weakly or through a policy
+     *
+     * A _ALL notification inside a batch marks every classifier, so every registered callback is called once.
+     * When an executor is set the notified classifiers are queued in classifier order instead
+     *
+     * @return ClassifiedObservable<ClassifiersType>, a reference to this instance
+     *
+     * @throws IllegalStateException, if no batch is open
+     */
+    public ClassifiedObservable<ClassifiersType> endBatch() {
+        long[] dirty;
+
+        ClassifiersType[] classifiers;
+
+        synchronized (this) {
+            if (batchDepth == 0) {
+                throw new IllegalStateException("endBatch() called without a matching beginBatch()");
+            }
+
+            if (--batchDepth > 0 || batchState == null || OrdinalMasks.isEmpty(batchState.dirty)) {
+                return this;
+            }
+
+            dirty = batchState.dirty.clone();
+
+            classifiers = batchState.classifiers;
+
+            Arrays.fill(batchState.dirty, 0L);
+        }
+
+        SerialDispatchQueue<ClassifiersType> queue = dispatchQueue;
+
+        if (queue != null) {
+            ClassifierDependencies<ClassifiersType> snapshot = dependencies;
+
+            queue.enqueue(dirty, snapshot == null ? null : snapshot.order(), classifiers);
+
+            return this;
+        }
+
+        deliver(dirty, classifiers);
+
+        return this;
+    }
+
+    /**
+     * Opens a batch that is closed by the returned handle, for use with try-with-resources
+     *
+     * @return Batch, the handle that ends the batch when closed
+     */
+    public Batch batch() {
+        beginBatch();
+
+        return new Batch(this);
+    }
+
+    /**
+     * Sets the dirty bit of the specified classifier without allocating once the bits exist
+     *
+     * @param classifier, the classifier that was notified
+     */
+    private void markDirty(ClassifiersType classifier) {
+        int ordinal = classifier.ordinal();
+
+        long bit = 1L << ordinal;
+
+        if (ordinal < WORD_SIZE) {
+            long word;
+
+            do {
+                word = dirtyWord;
+
+                if ((word & bit) != 0) {
+                    return;
+                }
+
+            } while (!DIRTY_WORD.compareAndSet(this, word, word | bit));
+
+            return;
+        }
+
+        AtomicLongArray overflow = dirtyOverflow;
+
+        if (overflow == null) {
+            synchronized (this) {
+                overflow = dirtyOverflow;
+
+                if (overflow == null) {
+                    overflow = new AtomicLongArray(OrdinalMasks.create(classifier.getDeclaringClass().getEnumConstants().length).length - 1);
+
+                    dirtyOverflow = overflow;
+                }
+            }
+        }
+
+        int index = ordinal / WORD_SIZE - 1;
+
+        long word;
+
+        do {
+            word = overflow.get(index);
+
+            if ((word & bit) != 0) {
+                return;
+            }
+
+        } while (!overflow.compareAndSet(index, word, word | bit));
+    }
+
+    /**
+     * Creates the updater of the dirty bits of the first 64 classifiers
+     *
+     * The class literal only names the raw type, the updater works on instances of any parameterization
+     *
+     * @return AtomicLongFieldUpdater<ClassifiedObservable<?>>, the updater
+     */
+    @SuppressWarnings("unchecked")
+    private static AtomicLongFieldUpdater<ClassifiedObservable<?>> newDirtyWordUpdater() {
+        return (AtomicLongFieldUpdater<ClassifiedObservable<?>>) (AtomicLongFieldUpdater<?>) AtomicLongFieldUpdater.newUpdater(ClassifiedObservable.class, "dirtyWord");
+    }
+
+    /**
+     * Increments the version of the specified classifier and the global version
+     *
+     * @param classifier, the classifier that was notified
+     */
+    private void incrementVersion(ClassifiersType classifier) {
+        AtomicLongArray counters = versions;
+
+        if (counters == null) {
+            counters = allocateVersions(classifier);
+        }
+
+        counters.incrementAndGet(classifier.ordinal());
+        counters.incrementAndGet(counters.length() - 1);
+    }
+
+    /**
+     * Allocates the version counters if no other thread did so first
+     *
+     * @param classifier, any classifier, used to size the counters
+     *
+     * @return AtomicLongArray, the counters
+     */
+    private AtomicLongArray allocateVersions(ClassifiersType classifier) {
+        synchronized (this) {
+            if (versions == null) {
+                versions = new AtomicLongArray(classifier.getDeclaringClass().getEnumConstants().length + 1);
+
+                countsVersions = true;
+            }
+
+            return versions;
+        }
+    }
+
+    /**
+     * Removes the registrations of weak callbacks whose callbacks were collected
+     */
+    @SuppressWarnings("unchecked")
+    private void purgeCollected() {
+        ReferenceQueue<OnPropertChangedCallback> queue = collectedCallbacks;
+
+        if (queue == null) {
+            return;
+        }
+
+        for (Object collected = queue.poll(); collected != null; collected = queue.poll()) {
+            WeakCallback<ClassifiersType> weakCallback = (WeakCallback<ClassifiersType>) collected;
+
+            remove(weakCallback.classifier, weakCallback);
+        }
+    }
+
+    /**
+     * Records a notification in the open batch
+     *
+     * @param classifier, the classifier that was notified
+     *
+     * @return boolean, true if the notification was recorded, false if the batch closed in the meantime
+     */
+    private boolean deferToBatch(ClassifiersType classifier) {
+        synchronized (this) {
+            if (batchDepth == 0) {
+                return false;
+            }
+
+            if (batchState == null) {
+                batchState = new BatchState<>(classifier.getDeclaringClass().getEnumConstants());
+            }
+
+            OrdinalMasks.set(batchState.dirty, classifier.ordinal());
+        }
+
+        return true;
+    }
+
+    /**
+     * Calls each callback registered for the classifiers in the mask once, in topological order when properties
+     * are derived and in classifier order otherwise
+     *
+     * @param dirty, the mask of notified classifier ordinals
+     * @param classifiers, the classifiers indexed by ordinal
+     */
+    private void deliver(long[] dirty, ClassifiersType[] classifiers) {
+        Object snapshot = callbacks;
+
+        DispatchMetrics metrics = dispatchMetrics;
+
+        if (snapshot == null && metrics == null) {
+            dispatchMasked(dirty[0]);
+
+            return;
+        }
+
+        boolean all = OrdinalMasks.isSet(dirty, _ALL);
+
+        ClassifierDependencies<ClassifiersType> dependenciesSnapshot = dependencies;
+
+        int[] order = dependenciesSnapshot == null ? null : dependenciesSnapshot.order();
+
+        Set<Object> called = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        int allFanOut = 0;
+
+        for (int index = 0, last = order == null ? (metrics == null ? Registrations.slots(snapshot) : classifiers.length) : order.length; index < last; ++index) {
+            int ordinal = order == null ? index : order[index];
+
+            if (!(all || OrdinalMasks.isSet(dirty, ordinal))) {
+                continue;
+            }
+
+            int fanOut = 0;
+
+            for (int i = 0, count = Registrations.count(snapshot, ordinal); i < count; ++i) {
+                OnPropertChangedCallback callback = Registrations.get(snapshot, ordinal, i);
+
+                if (callback != null && called.add(identityOf(callback))) {
+                    if (metrics == null) {
+                        callback.onPropertyChanged();
+
+                    } else {
+                        invokeMeasured(metrics, classifiers[ordinal], callback);
+
+                        ++fanOut;
+                    }
+                }
+            }
+
+            if (metrics != null && !all) {
+                metrics.onNotify(classifiers[ordinal], fanOut);
+            }
+
+            allFanOut += fanOut;
+        }
+
+        if (metrics != null && all) {
+            metrics.onNotify(classifiers[_ALL], allFanOut);
+        }
+
+        dispatchMasked(dirty[0]);
+    }
+
+    /**
+     * Calls the callbacks registered for the specified classifier, reporting each call and the notification to the
+     * specified metrics
+     *
+     * @param metrics, the metrics to report to
+     * @param registrations, the registrations to invoke the callbacks of
+     * @param classifier, the notified classifier
+     */
+    private static void dispatchMeasured(DispatchMetrics metrics, Object registrations, Enum<?> classifier) {
+        int ordinal = classifier.ordinal();
+
+        int fanOut = 0;
+
+        for (int current = ordinal == _ALL ? 0 : ordinal, last = ordinal == _ALL ? Registrations.slots(registrations) : ordinal + 1; current < last; ++current) {
+            for (int i = 0, count = Registrations.count(registrations, current); i < count; ++i) {
+                OnPropertChangedCallback callback = Registrations.get(registrations, current, i);
+
+                if (callback != null) {
+                    invokeMeasured(metrics, classifier, callback);
+
+                    ++fanOut;
+                }
+            }
+        }
+
+        metrics.onNotify(classifier, fanOut);
+    }
+
+    /**
+     * Calls a callback and reports how long it took to the specified metrics, even if it throws
+     *
+     * @param metrics, the metrics to report to
+     * @param classifier, the notified classifier
+     * @param callback, the callback to call
+     */
+    private static void invokeMeasured(DispatchMetrics metrics, Enum<?> classifier, OnPropertChangedCallback callback) {
+        long start = System.nanoTime();
+
+        try {
+            callback.onPropertyChanged();
+
+        } finally {
+            metrics.onCallback(classifier, callback, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Invokes each of the callbacks registered for the specified classifier ordinal
+     *
+     * @param registrations, the registrations to invoke the callbacks of
+     * @param ordinal, the ordinal of the classifier
+     */
+    private static void invoke(Object registrations, int ordinal) {
+        if (registrations instanceof OnPropertChangedCallback[][]) {
+            OnPropertChangedCallback[] enumCallbacks = ((OnPropertChangedCallback[][]) registrations)[ordinal];
+
+            if (enumCallbacks == null) {
+                return;
+            }
+
+            for (int i = 0; i < enumCallbacks.length; ++i) {
+                OnPropertChangedCallback callback = enumCallbacks[i];
+
+                if (callback != null) {
+                    callback.onPropertyChanged();
+                }
+            }
+
+            return;
+        }
+
+        for (int i = 0, count = Registrations.count(registrations, ordinal); i < count; ++i) {
+            OnPropertChangedCallback callback = Registrations.get(registrations, ordinal, i);
+
+            if (callback != null) {
+                callback.onPropertyChanged();
+            }
+        }
+    }
+
+    /**
+     * Gets the bit of an ordinal in the masks passed to callbacks added for several classifiers
+     *
+     * @param ordinal, the ordinal of the classifier
+     *
+     * @return long, the bit of the ordinal, 0 for ordinals beyond the first 64
+     */
+    private static long maskBit(int ordinal) {
+        return ordinal < WORD_SIZE ? 1L << ordinal : 0L;
+    }
+
+    /**
+     * Copies the callbacks added for several classifiers without a registration and without the specified bits
+     *
+     * @param registrations, the registrations to copy
+     * @param removed, the index of the registration to leave out, -1 to keep all of them
+     * @param cleared, the bits to clear from each registration, registrations left without bits are left out
+     *
+     * @return MaskedCallback[], the copy, null if no registration is left
+     */
+    private static MaskedCallback[] withoutMasked(MaskedCallback[] registrations, int removed, long cleared) {
+        MaskedCallback[] kept = new MaskedCallback[registrations.length];
+
+        int count = 0;
+
+        for (int i = 0; i < registrations.length; ++i) {
+            MaskedCallback registration = registrations[i];
+
+            if (i == removed || (registration.mask & ~cleared) == 0L) {
+                continue;
+            }
+
+            kept[count++] = (registration.mask & cleared) == 0L ? registration : new MaskedCallback(registration.mask & ~cleared, registration.callback);
+        }
+
+        return count == 0 ? null : Arrays.copyOf(kept, count);
+    }
+
+    /**
+     * Finds the first callback equal to the specified callback, or wrapping a callback equal to it
+     *
+     * @param registrations, the registrations to search
+     * @param ordinal, the ordinal of the classifier the callback is registered for
+     * @param callback, the callback to find
+     *
+     * @return int, the index of the callback among the callbacks of the classifier or -1 if it is not present
+     */
+    private static int indexOf(Object registrations, int ordinal, OnPropertChangedCallback callback) {
+        for (int i = 0, count = Registrations.count(registrations, ordinal); i < count; ++i) {
+            OnPropertChangedCallback registered = Registrations.get(registrations, ordinal, i);
+
+            if (callback.equals(registered)
+                    || (registered instanceof DelegatingCallback && callback.equals(((DelegatingCallback) registered).getDelegate()))) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * A registration that holds its callback weakly
+     *
+     * @param <ClassifiersType>, the type of the classifier the callback is registered for
+     */
+    private static final class WeakCallback<ClassifiersType> extends WeakReference<OnPropertChangedCallback>
+            implements OnPropertChangedCallback, DelegatingCallback {
+        /**
+         * The classifier the callback is registered for
+         */
+        final ClassifiersType classifier;
+
+        /**
+         * Constructs a weak callback
+         *
+         * @param classifier, the classifier the callback is registered for
+         * @param callback, the callback to hold weakly
+         * @param queue, the queue to enqueue this registration on once the callback is collected
+         */
+        WeakCallback(ClassifiersType classifier, OnPropertChangedCallback callback, ReferenceQueue<OnPropertChangedCallback> queue) {
+            super(callback, queue);
+
+            this.classifier = classifier;
+        }
+
+        @Override
+        public void onPropertyChanged() {
+            OnPropertChangedCallback callback = get();
+
+            if (callback != null) {
+                callback.onPropertyChanged();
+            }
+        }
+
+        @Override
+        public OnPropertChangedCallback getDelegate() {
+            return get();
+        }
+    }
+
+    /**
+     * Passes the values of a notification to the callbacks of one value type, primitive values are passed as the
+     * bits of a long so that no type boxes them
+     */
+    private interface ValueDelivery {
+        /**
+         * Passes the values to the specified callback if it takes values of the delivered type
+         *
+         * @param target, the callback, null if a weak callback was collected
+         * @param oldBits, the bits of the primitive value before the change
+         * @param newBits, the bits of the primitive value after the change
+         * @param oldObject, the object value before the change
+         * @param newObject, the object value after the change
+         *
+         * @return boolean, true if the callback received the values
+         */
+        boolean deliver(OnPropertChangedCallback target, long oldBits, long newBits, Object oldObject, Object newObject);
+    }
+
+    /**
+     * A callback added for several classifiers
+     */
+    private static final class MaskedCallback {
+        /**
+         * The bits of the classifiers the callback listens to
+         */
+        final long mask;
+
+        /**
+         * The callback
+         */
+        final OnClassifiersChangedCallback callback;
+
+        /**
+         * Constructs a registration
+         *
+         * @param mask, the bits of the classifiers the callback listens to
+         * @param callback, the callback
+         */
+        MaskedCallback(long mask, OnClassifiersChangedCallback callback) {
+            this.mask = mask;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * The classifiers notified while a batch is open
+     *
+     * @param <ClassifiersType>, the type of classifiers
+     */
+    private static final class BatchState<ClassifiersType> {
+        /**
+         * The classifiers indexed by ordinal
+         */
+        final ClassifiersType[] classifiers;
+
+        /**
+         * The mask of notified classifier ordinals
+         */
+        final long[] dirty;
+
+        /**
+         * Constructs an empty batch state
+         *
+         * @param classifiers, the classifiers indexed by ordinal
+         */
+        BatchState(ClassifiersType[] classifiers) {
+            this.classifiers = classifiers;
+            this.dirty = OrdinalMasks.create(classifiers.length);
+        }
+    }
+
+    /**
+     * A handle on an open batch, closing it ends the batch
+     */
+    public static final class Batch implements AutoCloseable {
+        /**
+         * The observable the batch was opened on, null once closed
+         */
+        private ClassifiedObservable<?> observable;
+
+        /**
+         * Constructs a batch handle
+         *
+         * @param observable, the observable the batch was opened on
+         */
+        Batch(ClassifiedObservable<?> observable) {
+            this.observable = observable;
+        }
+
+        /**
+         * Ends the batch, closing a handle more than once has no further effect
+         */
+        @Override
+        public void close() {
+            ClassifiedObservable<?> observable = this.observable;
+
+            if (observable != null) {
+                this.observable = null;
+
+                observable.endBatch();
+            }
+        }
+    }
+
+    /**
+     * A callback to use for property change notifications
+     */
+    public interface OnPropertChangedCallback {
+        /**
+         * Called when the specified property changes
+         */
+        void onPropertyChanged();
+    }
+
+    /**
+     * A callback for several properties that is told which of them changed
+     */
+    public interface OnClassifiersChangedCallback {
+        /**
+         * Called when any of the properties the callback was added for changes
+         *
+         * @param changed, the bits of the changed classifiers the callback was added for, indexed by ordinal
+         */
+        void onClassifiersChanged(long changed);
+    }
+
+    /**
+     * A callback for int properties that receives the old and new value without boxing
+     *
+     * Only the notifyPropertyChanged overload taking int values passes values, other notifications call
+     * onPropertyChanged(), which does nothing unless overridden
+     */
+    public interface OnIntPropertyChangedCallback extends OnPropertChangedCallback {
+        /**
+         * Called when the specified property changes
+         *
+         * @param oldValue, the value before the change
+         * @param newValue, the value after the change
+         */
+        void onPropertyChanged(int oldValue, int newValue);
+
+        /**
+         * Called when the specified property changes without passing values
+         */
+        @Override
+        default void onPropertyChanged() {
+        }
+    }
+
+    /**
+     * A callback for long properties that receives the old and new value without boxing
+     *
+     * Only the notifyPropertyChanged overload taking long values passes values, other notifications call
+     * onPropertyChanged(), which does nothing unless overridden
+     */
+    public interface OnLongPropertyChangedCallback extends OnPropertChangedCallback {
+        /**
+         * Called when the specified property changes
+         *
+         * @param oldValue, the value before the change
+         * @param newValue, the value after the change
+         */
+        void onPropertyChanged(long oldValue, long newValue);
+
+        /**
+         * Called when the specified property changes without passing values
+         */
+        @Override
+        default void onPropertyChanged() {
+        }
+    }
+
+    /**
+     * A callback for double properties that receives the old and new value without boxing
+     *
+     * Only the notifyPropertyChanged overload taking double values passes values, other notifications call
+     * onPropertyChanged(), which does nothing unless overridden
+     */
+    public interface OnDoublePropertyChangedCallback extends OnPropertChangedCallback {
+        /**
+         * Called when the specified property changes
+         *
+         * @param oldValue, the value before the change
+         * @param newValue, the value after the change
+         */
+        void onPropertyChanged(double oldValue, double newValue);
+
+        /**
+         * Called when the specified property changes without passing values
+         */
+        @Override
+        default void onPropertyChanged() {
+        }
+    }
+
+    /**
+     * A callback for boolean properties that receives the old and new value without boxing
+     *
+     * Only the notifyPropertyChanged overload taking boolean values passes values, other notifications call
+     * onPropertyChanged(), which does nothing unless overridden
+     */
+    public interface OnBooleanPropertyChangedCallback extends OnPropertChangedCallback {
+        /**
+         * Called when the specified property changes
+         *
+         * @param oldValue, the value before the change
+         * @param newValue, the value after the change
+         */
+        void onPropertyChanged(boolean oldValue, boolean newValue);
+
+        /**
+         * Called when the specified property changes without passing values
+         */
+        @Override
+        default void onPropertyChanged() {
+        }
+    }
+
+    /**
+     * A callback for object properties that receives the old and new value
+     *
+     * Only the notifyPropertyChanged overload taking object values passes values, other notifications call
+     * onPropertyChanged(), which does nothing unless overridden
+     *
+     * @param <T>, the type of the property
+     */
+    public interface OnObjectPropertyChangedCallback<T> extends OnPropertChangedCallback {
+        /**
+         * Called when the specified property changes
+         *
+         * @param oldValue, the value before the change
+         * @param newValue, the value after the change
+         */
+        void onPropertyChanged(T oldValue, T newValue);
+
+        /**
+         * Called when the specified property changes without passing values
+         */
+        @Override
+        default void onPropertyChanged() {
+        }
     }
 }
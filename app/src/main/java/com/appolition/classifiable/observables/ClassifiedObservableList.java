@@ -0,0 +1,631 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable.observables;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A list that notifies its callbacks of the ranges of items that were inserted, removed, moved or changed, so
+ * consumers can update just those items instead of the whole collection
+ *
+ * Bulk operations such as addAll(), clear(), removeIf(), removeAll(), retainAll(), replaceAll() and sort() notify a
+ * single range. While a batch is open the ranges are recorded and merged with the previous range where they are
+ * consecutive, then delivered when the outermost batch ends. Like ArrayList the list itself is not synchronized
+ *
+ * @param <E>, the type of the items
+ */
+public class ClassifiedObservableList<E> extends AbstractList<E> implements RandomAccess {
+    /**
+     * The items
+     */
+    private final ArrayList<E> items;
+
+    /**
+     * The callbacks to notify of changes, never modified once published
+     */
+    private volatile OnListChangedCallback[] callbacks = new OnListChangedCallback[0];
+
+    /**
+     * The number of open batches
+     */
+    private int batchDepth;
+
+    /**
+     * The ranges recorded while a batch is open, null until a range is recorded
+     */
+    private List<RangeChange> pending;
+
+    /**
+     * Constructs an empty list
+     */
+    public ClassifiedObservableList() {
+        items = new ArrayList<>();
+    }
+
+    /**
+     * Constructs a list holding the specified items
+     *
+     * @param items, the initial items
+     */
+    public ClassifiedObservableList(Collection<? extends E> items) {
+        this.items = new ArrayList<>(items);
+    }
+
+    /**
+     * Adds a callback to notify of changes
+     *
+     * @param callback, the callback to add
+     *
+     * @return ClassifiedObservableList<E>, a reference to this instance
+     */
+    public ClassifiedObservableList<E> addOnListChangedCallback(OnListChangedCallback callback) {
+        if (callback == null) {
+            return this;
+        }
+
+        synchronized (this) {
+            OnListChangedCallback[] updated = Arrays.copyOf(callbacks, callbacks.length + 1);
+
+            updated[updated.length - 1] = callback;
+
+            callbacks = updated;
+        }
+
+        return this;
+    }
+
+    /**
+     * Removes a callback
+     *
+     * @param callback, the callback to remove
+     *
+     * @return ClassifiedObservableList<E>, a reference to this instance
+     */
+    public ClassifiedObservableList<E> removeOnListChangedCallback(@NonNull OnListChangedCallback callback) {
+        synchronized (this) {
+            OnListChangedCallback[] current = callbacks;
+
+            for (int i = 0; i < current.length; ++i) {
+                if (current[i].equals(callback)) {
+                    OnListChangedCallback[] updated = new OnListChangedCallback[current.length - 1];
+
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+
+                    callbacks = updated;
+
+                    break;
+                }
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public E get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public E set(int index, E item) {
+        E previous = items.set(index, item);
+
+        record(RangeChange.CHANGED, index, 1, 0);
+
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E item) {
+        items.add(index, item);
+
+        ++modCount;
+
+        record(RangeChange.INSERTED, index, 1, 0);
+    }
+
+    @Override
+    public E remove(int index) {
+        E removed = items.remove(index);
+
+        ++modCount;
+
+        record(RangeChange.REMOVED, index, 1, 0);
+
+        return removed;
+    }
+
+    @Override
+    public boolean addAll(@NonNull Collection<? extends E> added) {
+        return addAll(items.size(), added);
+    }
+
+    @Override
+    public boolean addAll(int index, @NonNull Collection<? extends E> added) {
+        int count = added.size();
+
+        if (!items.addAll(index, added)) {
+            return false;
+        }
+
+        ++modCount;
+
+        record(RangeChange.INSERTED, index, count, 0);
+
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        int count = items.size();
+
+        if (count == 0) {
+            return;
+        }
+
+        items.clear();
+
+        ++modCount;
+
+        record(RangeChange.REMOVED, 0, count, 0);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return;
+        }
+
+        items.subList(fromIndex, toIndex).clear();
+
+        ++modCount;
+
+        record(RangeChange.REMOVED, fromIndex, toIndex - fromIndex, 0);
+    }
+
+    /**
+     * Removes the items matching the filter in a single pass
+     *
+     * Contiguous removals notify a single removed range. Scattered removals notify the removed count at the first
+     * removed index followed by a changed range over the items that shifted within the span of the removals
+     *
+     * @param filter, the filter selecting the items to remove
+     *
+     * @return boolean, true if any item was removed
+     */
+    @Override
+    public boolean removeIf(@NonNull Predicate<? super E> filter) {
+        BitSet matched = new BitSet(items.size());
+
+        for (int i = 0, size = items.size(); i < size; ++i) {
+            if (filter.test(items.get(i))) {
+                matched.set(i);
+            }
+        }
+
+        if (matched.isEmpty()) {
+            return false;
+        }
+
+        int first = matched.nextSetBit(0);
+        int last = matched.length() - 1;
+        int kept = first;
+
+        for (int i = first, size = items.size(); i < size; ++i) {
+            if (!matched.get(i)) {
+                items.set(kept++, items.get(i));
+            }
+        }
+
+        int removed = items.size() - kept;
+
+        items.subList(kept, items.size()).clear();
+
+        ++modCount;
+
+        int span = last - first + 1;
+
+        if (span == removed) {
+            record(RangeChange.REMOVED, first, removed, 0);
+
+        } else {
+            beginBatch();
+
+            try {
+                record(RangeChange.REMOVED, first, removed, 0);
+                record(RangeChange.CHANGED, first, span - removed, 0);
+
+            } finally {
+                endBatch();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes the items contained in the specified collection in a single pass, notifying the ranges the way
+     * removeIf() does
+     *
+     * @param removed, the items to remove
+     *
+     * @return boolean, true if any item was removed
+     */
+    @Override
+    public boolean removeAll(@NonNull Collection<?> removed) {
+        Objects.requireNonNull(removed);
+
+        return removeIf(removed::contains);
+    }
+
+    /**
+     * Removes the items not contained in the specified collection in a single pass, notifying the ranges the way
+     * removeIf() does
+     *
+     * @param retained, the items to keep
+     *
+     * @return boolean, true if any item was removed
+     */
+    @Override
+    public boolean retainAll(@NonNull Collection<?> retained) {
+        Objects.requireNonNull(retained);
+
+        return removeIf(item -> !retained.contains(item));
+    }
+
+    @Override
+    public void replaceAll(@NonNull UnaryOperator<E> operator) {
+        items.replaceAll(operator);
+
+        if (!items.isEmpty()) {
+            record(RangeChange.CHANGED, 0, items.size(), 0);
+        }
+    }
+
+    @Override
+    public void sort(Comparator<? super E> comparator) {
+        items.sort(comparator);
+
+        ++modCount;
+
+        if (items.size() > 1) {
+            record(RangeChange.CHANGED, 0, items.size(), 0);
+        }
+    }
+
+    /**
+     * Moves an item to another position
+     *
+     * @param fromIndex, the current position of the item
+     * @param toIndex, the position of the item after the move
+     *
+     * @return ClassifiedObservableList<E>, a reference to this instance
+     */
+    public ClassifiedObservableList<E> move(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            items.get(fromIndex);
+
+            return this;
+        }
+
+        items.add(toIndex, items.remove(fromIndex));
+
+        ++modCount;
+
+        record(RangeChange.MOVED, fromIndex, 1, toIndex);
+
+        return this;
+    }
+
+    /**
+     * Opens a batch, changes are recorded until the matching call to endBatch() and then delivered with
+     * consecutive ranges merged
+     *
+     * @return ClassifiedObservableList<E>, a reference to this instance
+     */
+    public ClassifiedObservableList<E> beginBatch() {
+        ++batchDepth;
+
+        return this;
+    }
+
+    /**
+     * Closes a batch, when the outermost batch closes the recorded ranges are delivered in order
+     *
+     * @return ClassifiedObservableList<E>, a reference to this instance
+     *
+     * @throws IllegalStateException, if no batch is open
+     */
+    public ClassifiedObservableList<E> endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("endBatch() called without a matching beginBatch()");
+        }
+
+        if (--batchDepth > 0 || pending == null || pending.isEmpty()) {
+            return this;
+        }
+
+        List<RangeChange> changes = pending;
+
+        pending = null;
+
+        for (RangeChange change : changes) {
+            deliver(change.type, change.start, change.count, change.to);
+        }
+
+        return this;
+    }
+
+    /**
+     * Opens a batch that is closed by the returned handle, for use with try-with-resources
+     *
+     * @return Batch, the handle that ends the batch when closed
+     */
+    public Batch batch() {
+        beginBatch();
+
+        return new Batch(this);
+    }
+
+    /**
+     * Delivers a range change right away or records it in the open batch, merging it with the previous range
+     *
+     * @param type, the type of change
+     * @param start, the first index of the range
+     * @param count, the number of items in the range
+     * @param to, the index the range moved to for moves
+     */
+    private void record(int type, int start, int count, int to) {
+        if (batchDepth == 0) {
+            deliver(type, start, count, to);
+
+            return;
+        }
+
+        if (pending == null) {
+            pending = new ArrayList<>();
+        }
+
+        if (pending.isEmpty() || !pending.get(pending.size() - 1).merge(type, start, count)) {
+            pending.add(new RangeChange(type, start, count, to));
+        }
+    }
+
+    /**
+     * Calls the callbacks for a range change
+     *
+     * @param type, the type of change
+     * @param start, the first index of the range
+     * @param count, the number of items in the range
+     * @param to, the index the range moved to for moves
+     */
+    private void deliver(int type, int start, int count, int to) {
+        for (OnListChangedCallback callback : callbacks) {
+            switch (type) {
+                case RangeChange.INSERTED:
+                    callback.onItemRangeInserted(start, count);
+                    break;
+
+                case RangeChange.REMOVED:
+                    callback.onItemRangeRemoved(start, count);
+                    break;
+
+                case RangeChange.MOVED:
+                    callback.onItemRangeMoved(start, to, count);
+                    break;
+
+                default:
+                    callback.onItemRangeChanged(start, count);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * A range change recorded while a batch is open
+     */
+    private static final class RangeChange {
+        /**
+         * Items were inserted
+         */
+        static final int INSERTED = 0;
+
+        /**
+         * Items were removed
+         */
+        static final int REMOVED = 1;
+
+        /**
+         * Items were moved
+         */
+        static final int MOVED = 2;
+
+        /**
+         * Items were replaced
+         */
+        static final int CHANGED = 3;
+
+        /**
+         * The type of change
+         */
+        final int type;
+
+        /**
+         * The first index of the range
+         */
+        int start;
+
+        /**
+         * The number of items in the range
+         */
+        int count;
+
+        /**
+         * The index the range moved to for moves
+         */
+        final int to;
+
+        /**
+         * Constructs a range change
+         *
+         * @param type, the type of change
+         * @param start, the first index of the range
+         * @param count, the number of items in the range
+         * @param to, the index the range moved to for moves
+         */
+        RangeChange(int type, int start, int count, int to) {
+            this.type = type;
+            this.start = start;
+            this.count = count;
+            this.to = to;
+        }
+
+        /**
+         * Merges the following range change into this one if the result describes both
+         *
+         * @param type, the type of the following change
+         * @param start, the first index of the following range
+         * @param count, the number of items in the following range
+         *
+         * @return boolean, true if the following change was merged
+         */
+        boolean merge(int type, int start, int count) {
+            int end = this.start + this.count;
+
+            if (this.type == INSERTED && type == INSERTED && start >= this.start && start <= end) {
+                this.count += count;
+
+                return true;
+            }
+
+            if (this.type == INSERTED && type == CHANGED && start >= this.start && start + count <= end) {
+                return true;
+            }
+
+            if (this.type == REMOVED && type == REMOVED && (start == this.start || start + count == this.start)) {
+                this.start = Math.min(this.start, start);
+                this.count += count;
+
+                return true;
+            }
+
+            if (this.type == CHANGED && type == CHANGED && start <= end && start + count >= this.start) {
+                int mergedEnd = Math.max(end, start + count);
+
+                this.start = Math.min(this.start, start);
+                this.count = mergedEnd - this.start;
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * A handle on an open batch, closing it ends the batch
+     */
+    public static final class Batch implements AutoCloseable {
+        /**
+         * The list the batch was opened on, null once closed
+         */
+        private ClassifiedObservableList<?> list;
+
+        /**
+         * Constructs a batch handle
+         *
+         * @param list, the list the batch was opened on
+         */
+        Batch(ClassifiedObservableList<?> list) {
+            this.list = list;
+        }
+
+        /**
+         * Ends the batch, closing a handle more than once has no further effect
+         */
+        @Override
+        public void close() {
+            ClassifiedObservableList<?> list = this.list;
+
+            if (list != null) {
+                this.list = null;
+
+                list.endBatch();
+            }
+        }
+    }
+
+    /**
+     * A callback to use for list change notifications, indices refer to the list as it was right after the change
+     * for inserted and changed ranges and right before it for removed and moved ranges
+     */
+    public interface OnListChangedCallback {
+        /**
+         * Called when items were inserted
+         *
+         * @param start, the index of the first inserted item
+         * @param count, the number of inserted items
+         */
+        void onItemRangeInserted(int start, int count);
+
+        /**
+         * Called when items were removed
+         *
+         * @param start, the index of the first removed item
+         * @param count, the number of removed items
+         */
+        void onItemRangeRemoved(int start, int count);
+
+        /**
+         * Called when items were moved
+         *
+         * @param fromIndex, the index of the first item before the move
+         * @param toIndex, the index of the first item after the move
+         * @param count, the number of moved items
+         */
+        void onItemRangeMoved(int fromIndex, int toIndex, int count);
+
+        /**
+         * Called when items were replaced
+         *
+         * @param start, the index of the first replaced item
+         * @param count, the number of replaced items
+         */
+        void onItemRangeChanged(int start, int count);
+    }
+}
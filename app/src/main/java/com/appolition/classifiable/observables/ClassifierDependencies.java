@@ -0,0 +1,242 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable.observables;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The dependencies between derived properties and the properties they are computed from
+ *
+ * Notifying a property also notifies every property derived from it, directly or transitively, once and in
+ * topological order. Instances are immutable and meant to be built once per model class and shared by its
+ * instances, see ClassifiedObservable.setDependencies(ClassifierDependencies)
+ *
+ * @param <ClassifiersType>, the type of classifiers the dependencies are declared between
+ */
+public final class ClassifierDependencies<ClassifiersType extends Enum<ClassifiersType>> {
+    /**
+     * The ordinal for notifying all properties changed
+     */
+    private static final int _ALL = 0;
+
+    /**
+     * The transitive dependents of each classifier in topological order, indexed by ordinal
+     */
+    private final ClassifiersType[][] dependents;
+
+    /**
+     * The ordinals of all classifiers in topological order
+     */
+    private final int[] order;
+
+    /**
+     * Constructs the dependencies
+     *
+     * @param dependents, the transitive dependents of each classifier in topological order, indexed by ordinal
+     * @param order, the ordinals of all classifiers in topological order
+     */
+    private ClassifierDependencies(ClassifiersType[][] dependents, int[] order) {
+        this.dependents = dependents;
+        this.order = order;
+    }
+
+    /**
+     * Creates a builder for the dependencies between the classifiers of an enum
+     *
+     * @param classifiersClass, the enum of the classifiers
+     * @param <ClassifiersType>, the type of classifiers
+     *
+     * @return Builder<ClassifiersType>, the builder
+     */
+    public static <ClassifiersType extends Enum<ClassifiersType>> Builder<ClassifiersType> builder(Class<ClassifiersType> classifiersClass) {
+        return new Builder<>(classifiersClass);
+    }
+
+    /**
+     * Gets the properties derived from the specified property, directly or transitively
+     *
+     * @param classifier, the classifier of the property
+     *
+     * @return ClassifiersType[], the classifiers of the derived properties in topological order, shared and not
+     *                            to be modified
+     */
+    ClassifiersType[] dependentsOf(ClassifiersType classifier) {
+        return dependents[classifier.ordinal()];
+    }
+
+    /**
+     * Gets the order in which a wave of notifications has to be delivered
+     *
+     * @return int[], the ordinals of all classifiers in topological order, shared and not to be modified
+     */
+    int[] order() {
+        return order;
+    }
+
+    /**
+     * Builds the dependencies between the classifiers of an enum
+     *
+     * @param <ClassifiersType>, the type of classifiers
+     */
+    public static final class Builder<ClassifiersType extends Enum<ClassifiersType>> {
+        /**
+         * The classifiers of the enum, indexed by ordinal
+         */
+        private final ClassifiersType[] classifiers;
+
+        /**
+         * The direct dependents of each classifier, indexed by ordinal
+         */
+        private final List<List<ClassifiersType>> direct;
+
+        /**
+         * Constructs a builder
+         *
+         * @param classifiersClass, the enum of the classifiers
+         */
+        Builder(Class<ClassifiersType> classifiersClass) {
+            this.classifiers = classifiersClass.getEnumConstants();
+            this.direct = new ArrayList<>(classifiers.length);
+
+            for (int i = 0; i < classifiers.length; ++i) {
+                direct.add(new ArrayList<>());
+            }
+        }
+
+        /**
+         * Declares that a property is derived from other properties
+         *
+         * @param dependent, the classifier of the derived property
+         * @param bases, the classifiers of the properties it is computed from
+         *
+         * @return Builder<ClassifiersType>, a reference to this instance
+         *
+         * @throws IllegalArgumentException, if _ALL is used or a property is declared to depend on itself
+         */
+        @SafeVarargs
+        public final Builder<ClassifiersType> add(ClassifiersType dependent, ClassifiersType... bases) {
+            for (ClassifiersType base : bases) {
+                if (dependent.ordinal() == _ALL || base.ordinal() == _ALL) {
+                    throw new IllegalArgumentException("_ALL cannot take part in a dependency");
+                }
+
+                if (dependent == base) {
+                    throw new IllegalArgumentException(String.format("%s cannot depend on itself", dependent));
+                }
+
+                List<ClassifiersType> baseDependents = direct.get(base.ordinal());
+
+                if (!baseDependents.contains(dependent)) {
+                    baseDependents.add(dependent);
+                }
+            }
+
+            return this;
+        }
+
+        /**
+         * Builds the dependencies, ordering the classifiers topologically
+         *
+         * @return ClassifierDependencies<ClassifiersType>, the dependencies
+         *
+         * @throws IllegalArgumentException, if the dependencies contain a cycle
+         */
+        @SuppressWarnings("unchecked")
+        public ClassifierDependencies<ClassifiersType> build() {
+            int[] incoming = new int[classifiers.length];
+
+            for (List<ClassifiersType> baseDependents : direct) {
+                for (ClassifiersType dependent : baseDependents) {
+                    ++incoming[dependent.ordinal()];
+                }
+            }
+
+            int[] order = new int[classifiers.length];
+            boolean[] ordered = new boolean[classifiers.length];
+
+            for (int size = 0; size < order.length; ++size) {
+                int next = -1;
+
+                for (int ordinal = 0; ordinal < classifiers.length && next < 0; ++ordinal) {
+                    if (!ordered[ordinal] && incoming[ordinal] == 0) {
+                        next = ordinal;
+                    }
+                }
+
+                if (next < 0) {
+                    List<ClassifiersType> cycle = new ArrayList<>();
+
+                    for (int ordinal = 0; ordinal < classifiers.length; ++ordinal) {
+                        if (!ordered[ordinal]) {
+                            cycle.add(classifiers[ordinal]);
+                        }
+                    }
+
+                    throw new IllegalArgumentException(String.format("Dependencies contain a cycle between %s", cycle));
+                }
+
+                ordered[next] = true;
+                order[size] = next;
+
+                for (ClassifiersType dependent : direct.get(next)) {
+                    --incoming[dependent.ordinal()];
+                }
+            }
+
+            ClassifiersType[][] dependents = (ClassifiersType[][]) Array.newInstance(classifiers.getClass(), classifiers.length);
+
+            for (int ordinal = 0; ordinal < classifiers.length; ++ordinal) {
+                boolean[] reachable = new boolean[classifiers.length];
+
+                collect(ordinal, reachable);
+
+                List<ClassifiersType> sorted = new ArrayList<>();
+
+                for (int index = 0; index < order.length; ++index) {
+                    if (reachable[order[index]]) {
+                        sorted.add(classifiers[order[index]]);
+                    }
+                }
+
+                dependents[ordinal] = sorted.toArray(Arrays.copyOf(classifiers, 0));
+            }
+
+            return new ClassifierDependencies<>(dependents, order);
+        }
+
+        /**
+         * Marks every classifier derived from the specified one, directly or transitively
+         *
+         * @param ordinal, the ordinal of the classifier
+         * @param reachable, the marks, indexed by ordinal
+         */
+        private void collect(int ordinal, boolean[] reachable) {
+            for (ClassifiersType dependent : direct.get(ordinal)) {
+                if (!reachable[dependent.ordinal()]) {
+                    reachable[dependent.ordinal()] = true;
+
+                    collect(dependent.ordinal(), reachable);
+                }
+            }
+        }
+    }
+}
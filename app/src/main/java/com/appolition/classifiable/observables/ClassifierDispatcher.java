@@ -0,0 +1,145 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable.observables;
+
+import com.appolition.classifiable.observables.ClassifiedObservable.OnPropertChangedCallback;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registrations of an observable held in one field per classifier, generated by the Classifiable processor as
+ * FooDispatcher next to FooClassifiers
+ *
+ * Once an observable holds more registrations than fit without a table it looks for the dispatcher of its
+ * classifiers by name and uses it in place of the table, so notifying a classifier is a switch over the ordinal
+ * instead of an indexed load from an array of arrays, and the callbacks of each classifier are called from a call
+ * site of their own. Like the other tiers of Registrations a dispatcher is never
+ * modified once published, adding or removing a callback returns a clone with a single field replaced before it
+ * is published
+ *
+ * The dispatcher is created through its public no argument constructor, which must create the dispatcher without
+ * registrations, so shrinkers must keep that constructor
+ *
+ * @param <ClassifiersType>, the type of classifiers the registrations are for
+ */
+public abstract class ClassifierDispatcher<ClassifiersType extends Enum<ClassifiersType>> {
+    /**
+     * The suffix of the classifiers a dispatcher is looked up for
+     */
+    private static final String CLASSIFIERS_SUFFIX = "Classifiers";
+
+    /**
+     * The suffix of a dispatcher
+     */
+    private static final String DISPATCHER_SUFFIX = "Dispatcher";
+
+    /**
+     * Stands for classifiers without a dispatcher in PROTOTYPES
+     */
+    private static final Object NONE = new Object();
+
+    /**
+     * The dispatchers without registrations, or NONE, by classifiers class
+     */
+    private static final ConcurrentHashMap<Class<?>, Object> PROTOTYPES = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the number of classifiers, including _ALL
+     *
+     * @return int, the number of classifiers
+     */
+    protected abstract int slots();
+
+    /**
+     * Gets the callbacks registered for a classifier
+     *
+     * @param ordinal, the ordinal of the classifier
+     *
+     * @return OnPropertChangedCallback[], the callbacks, null if there are none
+     */
+    protected abstract OnPropertChangedCallback[] callbacks(int ordinal);
+
+    /**
+     * Copies the dispatcher with the callbacks of a classifier replaced
+     *
+     * @param ordinal, the ordinal of the classifier
+     * @param callbacks, the callbacks of the classifier, null for none
+     *
+     * @return ClassifierDispatcher<ClassifiersType>, the copy
+     */
+    protected abstract ClassifierDispatcher<ClassifiersType> withCallbacks(int ordinal, OnPropertChangedCallback[] callbacks);
+
+    /**
+     * Calls the callbacks registered for a classifier, or the callbacks of every classifier in ordinal order for
+     * _ALL
+     *
+     * @param ordinal, the ordinal of the notified classifier
+     */
+    protected abstract void dispatch(int ordinal);
+
+    /**
+     * Gets the dispatcher without registrations for the specified classifiers, loading it the first time
+     *
+     * @param classifiers, the classifiers class
+     *
+     * @return ClassifierDispatcher<?>, the dispatcher, null if the classifiers have none
+     */
+    static ClassifierDispatcher<?> of(Class<?> classifiers) {
+        Object prototype = PROTOTYPES.get(classifiers);
+
+        if (prototype == null) {
+            prototype = load(classifiers);
+
+            PROTOTYPES.putIfAbsent(classifiers, prototype);
+        }
+
+        return prototype == NONE ? null : (ClassifierDispatcher<?>) prototype;
+    }
+
+    /**
+     * Looks up and creates the dispatcher of the specified classifiers, FooDispatcher for FooClassifiers
+     *
+     * @param classifiers, the classifiers class
+     *
+     * @return Object, the dispatcher without registrations, NONE if there is none or it does not match the classifiers
+     */
+    private static Object load(Class<?> classifiers) {
+        String name = classifiers.getName();
+
+        if (!name.endsWith(CLASSIFIERS_SUFFIX)) {
+            return NONE;
+        }
+
+        try {
+            Class<?> type = Class.forName(name.substring(0, name.length() - CLASSIFIERS_SUFFIX.length()) + DISPATCHER_SUFFIX, true, classifiers.getClassLoader());
+
+            if (!ClassifierDispatcher.class.isAssignableFrom(type)) {
+                return NONE;
+            }
+
+            ClassifierDispatcher<?> dispatcher = (ClassifierDispatcher<?>) type.getConstructor().newInstance();
+
+            return dispatcher.slots() == classifiers.getEnumConstants().length ? dispatcher : NONE;
+
+        } catch (ReflectiveOperationException | LinkageError excpt) {
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable.observables;
+
+import com.appolition.classifiable.observables.ClassifiedObservable.OnPropertChangedCallback;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.reflect.Array;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Publishes the changes of a set of properties of an observable as the classifiers that changed
+ *
+ * Each subscriber holds a dirty bit per classifier rather than a buffer, so while a subscriber does not request
+ * the changes of a classifier collapse into one pending signal and the memory held per subscriber stays constant
+ * however fast the properties change. Pending classifiers are emitted round robin so a property that changes
+ * constantly does not starve the others. The publisher never completes, a subscription ends when it is cancelled
+ *
+ * @param <ClassifiersType>, the type of classifiers to publish
+ */
+public final class ClassifierPublisher<ClassifiersType extends Enum<ClassifiersType>> implements Publisher<ClassifiersType> {
+    /**
+     * The observable whose changes are published
+     */
+    private final ClassifiedObservable<ClassifiersType> observable;
+
+    /**
+     * The classifiers whose changes are published
+     */
+    private final ClassifiersType[] classifiers;
+
+    /**
+     * Constructs a publisher
+     *
+     * @param observable, the observable whose changes are published
+     * @param classifiers, the classifiers whose changes are published
+     */
+    private ClassifierPublisher(ClassifiedObservable<ClassifiersType> observable, ClassifiersType[] classifiers) {
+        this.observable = observable;
+        this.classifiers = classifiers;
+    }
+
+    /**
+     * Creates a publisher of the changes of a single property
+     *
+     * @param observable, the observable whose changes are published
+     * @param classifier, the classifier of the property
+     * @param <ClassifiersType>, the type of classifiers to publish
+     *
+     * @return ClassifierPublisher<ClassifiersType>, the publisher
+     */
+    public static <ClassifiersType extends Enum<ClassifiersType>> ClassifierPublisher<ClassifiersType> of(ClassifiedObservable<ClassifiersType> observable, ClassifiersType classifier) {
+        return of(observable, EnumSet.of(classifier));
+    }
+
+    /**
+     * Creates a publisher of the changes of a set of properties
+     *
+     * @param observable, the observable whose changes are published
+     * @param classifiers, the classifiers of the properties
+     * @param <ClassifiersType>, the type of classifiers to publish
+     *
+     * @return ClassifierPublisher<ClassifiersType>, the publisher
+     *
+     * @throws IllegalArgumentException, if no classifier is specified
+     */
+    @SuppressWarnings("unchecked")
+    public static <ClassifiersType extends Enum<ClassifiersType>> ClassifierPublisher<ClassifiersType> of(ClassifiedObservable<ClassifiersType> observable, EnumSet<ClassifiersType> classifiers) {
+        if (classifiers.isEmpty()) {
+            throw new IllegalArgumentException("At least one classifier must be published");
+        }
+
+        Class<ClassifiersType> classifierClass = classifiers.iterator().next().getDeclaringClass();
+
+        return new ClassifierPublisher<>(observable, classifiers.toArray((ClassifiersType[]) Array.newInstance(classifierClass, 0)));
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ClassifiersType> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber must not be null");
+        }
+
+        CollapsingSubscription<ClassifiersType> subscription = new CollapsingSubscription<>(observable, classifiers, subscriber);
+
+        subscriber.onSubscribe(subscription);
+
+        subscription.register();
+    }
+
+    /**
+     * A subscription that records changes as dirty bits and emits them as they are requested
+     *
+     * @param <ClassifiersType>, the type of classifiers to publish
+     */
+    private static final class CollapsingSubscription<ClassifiersType extends Enum<ClassifiersType>> implements Subscription {
+        /**
+         * The observable whose changes are published
+         */
+        private final ClassifiedObservable<ClassifiersType> observable;
+
+        /**
+         * The classifiers whose changes are published
+         */
+        private final ClassifiersType[] classifiers;
+
+        /**
+         * The subscriber to emit to
+         */
+        private final Subscriber<? super ClassifiersType> subscriber;
+
+        /**
+         * The callbacks registered for each published classifier, by index into classifiers
+         */
+        private final OnPropertChangedCallback[] callbacks;
+
+        /**
+         * The dirty bits, by index into classifiers
+         */
+        private final AtomicLongArray dirty;
+
+        /**
+         * The number of requested but not yet emitted signals, Long.MAX_VALUE for unbounded
+         */
+        private final AtomicLong requested = new AtomicLong();
+
+        /**
+         * The number of pending drains, only the caller that raises it from zero drains
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+
+        /**
+         * The index into classifiers to look for the next dirty bit from
+         */
+        private int cursor;
+
+        /**
+         * The error to signal, null unless an invalid request was made
+         */
+        private volatile Throwable error;
+
+        /**
+         * True once the subscription was cancelled or terminated
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Constructs a subscription
+         *
+         * @param observable, the observable whose changes are published
+         * @param classifiers, the classifiers whose changes are published
+         * @param subscriber, the subscriber to emit to
+         */
+        CollapsingSubscription(ClassifiedObservable<ClassifiersType> observable, ClassifiersType[] classifiers, Subscriber<? super ClassifiersType> subscriber) {
+            this.observable = observable;
+            this.classifiers = classifiers;
+            this.subscriber = subscriber;
+            this.callbacks = new OnPropertChangedCallback[classifiers.length];
+            this.dirty = new AtomicLongArray(OrdinalMasks.create(classifiers.length).length);
+        }
+
+        /**
+         * Registers the callbacks that mark the published classifiers dirty, unless already cancelled
+         */
+        synchronized void register() {
+            for (int i = 0; i < classifiers.length && !cancelled; ++i) {
+                int index = i;
+
+                callbacks[i] = () -> markDirty(index);
+
+                observable.add(classifiers[i], callbacks[i]);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("request(" + n + ") must be positive");
+
+                drain();
+
+                return;
+            }
+
+            long current;
+
+            do {
+                current = requested.get();
+
+                if (current == Long.MAX_VALUE) {
+                    break;
+                }
+
+            } while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+
+            cancelled = true;
+
+            unregister();
+        }
+
+        /**
+         * Marks a published classifier dirty and emits it if it is requested
+         *
+         * @param index, the index of the classifier into classifiers
+         */
+        private void markDirty(int index) {
+            long bit = 1L << index;
+
+            int word = index / 64;
+
+            long current;
+
+            do {
+                current = dirty.get(word);
+
+                if ((current & bit) != 0) {
+                    break;
+                }
+
+            } while (!dirty.compareAndSet(word, current, current | bit));
+
+            drain();
+        }
+
+        /**
+         * Clears the next dirty bit from the cursor on
+         *
+         * @return int, the index of the classifier into classifiers, -1 if none is dirty
+         */
+        private int takeDirty() {
+            for (int offset = 0; offset < classifiers.length; ++offset) {
+                int index = (cursor + offset) % classifiers.length;
+
+                int word = index / 64;
+
+                long bit = 1L << index;
+
+                long current;
+
+                do {
+                    current = dirty.get(word);
+
+                    if ((current & bit) == 0) {
+                        break;
+                    }
+
+                } while (!dirty.compareAndSet(word, current, current & ~bit));
+
+                if ((current & bit) != 0) {
+                    cursor = index + 1;
+
+                    return index;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Emits the requested dirty classifiers, serialized so only one thread signals the subscriber at a time
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+
+            do {
+                if (cancelled) {
+                    return;
+                }
+
+                Throwable failure = error;
+
+                if (failure != null) {
+                    cancel();
+
+                    subscriber.onError(failure);
+
+                    return;
+                }
+
+                long limit = requested.get();
+
+                long emitted = 0;
+
+                while (emitted != limit && !cancelled) {
+                    int index = takeDirty();
+
+                    if (index < 0) {
+                        break;
+                    }
+
+                    subscriber.onNext(classifiers[index]);
+
+                    ++emitted;
+                }
+
+                if (emitted != 0 && limit != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+
+                missed = wip.addAndGet(-missed);
+
+            } while (missed != 0);
+        }
+
+        /**
+         * Removes the registered callbacks
+         */
+        private synchronized void unregister() {
+            for (int i = 0; i < classifiers.length; ++i) {
+                OnPropertChangedCallback callback = callbacks[i];
+
+                if (callback != null) {
+                    callbacks[i] = null;
+
+                    observable.remove(classifiers[i], callback);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable.observables;
+
+import com.appolition.classifiable.observables.ClassifiedObservable.OnPropertChangedCallback;
+
+/**
+ * Receives the dispatches of every ClassifiedObservable once set through ClassifiedObservable.setDispatchMetrics()
+ *
+ * The methods are called on the dispatching thread, possibly from several threads at once, so implementations
+ * must be thread safe and cheap
+ */
+public interface DispatchMetrics {
+    /**
+     * Called once a notification was delivered to its callbacks
+     *
+     * @param classifier, the notified classifier
+     * @param fanOut, the number of callbacks that were called
+     */
+    void onNotify(Enum<?> classifier, int fanOut);
+
+    /**
+     * Called once a callback returned or threw
+     *
+     * @param classifier, the notified classifier
+     * @param callback, the registered callback, which may wrap the callback that was added
+     * @param nanos, the time the callback took in nanoseconds
+     */
+    void onCallback(Enum<?> classifier, OnPropertChangedCallback callback, long nanos);
+}
@@ -0,0 +1,284 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable.observables;
+
+import com.appolition.classifiable.observables.ClassifiedObservable.OnPropertChangedCallback;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often a callback is called when its property changes faster than the observer needs
+ *
+ * Delayed calls are made on the thread that advances the scheduler. A call that is already scheduled may still
+ * happen after the callback is removed, in the same way as a notification that is already in flight
+ */
+public abstract class NotificationPolicy {
+    /**
+     * The scheduler that runs the delayed calls
+     */
+    final NotificationScheduler scheduler;
+
+    /**
+     * The length of the window in nanoseconds
+     */
+    final long windowNanos;
+
+    /**
+     * Constructs a policy
+     *
+     * @param scheduler, the scheduler that runs the delayed calls
+     * @param window, the length of the window
+     * @param unit, the unit of window
+     */
+    NotificationPolicy(NotificationScheduler scheduler, long window, TimeUnit unit) {
+        if (window < 0) {
+            throw new IllegalArgumentException("window must not be negative");
+        }
+
+        this.scheduler = scheduler;
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    /**
+     * Creates a policy that calls the callback at most once per window, the first change in a window is delivered
+     * immediately and the last one when the window ends
+     *
+     * @param window, the length of the window
+     * @param unit, the unit of window
+     *
+     * @return NotificationPolicy, the policy using the shared scheduler
+     */
+    public static NotificationPolicy throttle(long window, TimeUnit unit) {
+        return throttle(window, unit, NotificationScheduler.shared());
+    }
+
+    /**
+     * Creates a policy that calls the callback at most once per window, the first change in a window is delivered
+     * immediately and the last one when the window ends
+     *
+     * @param window, the length of the window
+     * @param unit, the unit of window
+     * @param scheduler, the scheduler that runs the delayed calls
+     *
+     * @return NotificationPolicy, the policy
+     */
+    public static NotificationPolicy throttle(long window, TimeUnit unit, NotificationScheduler scheduler) {
+        return new NotificationPolicy(scheduler, window, unit) {
+            @Override
+            OnPropertChangedCallback wrap(OnPropertChangedCallback callback) {
+                return new ThrottledCallback(this, callback);
+            }
+        };
+    }
+
+    /**
+     * Creates a policy that calls the callback once the property has not changed for the length of the window
+     *
+     * @param window, the length of the window
+     * @param unit, the unit of window
+     *
+     * @return NotificationPolicy, the policy using the shared scheduler
+     */
+    public static NotificationPolicy debounce(long window, TimeUnit unit) {
+        return debounce(window, unit, NotificationScheduler.shared());
+    }
+
+    /**
+     * Creates a policy that calls the callback once the property has not changed for the length of the window
+     *
+     * @param window, the length of the window
+     * @param unit, the unit of window
+     * @param scheduler, the scheduler that runs the delayed calls
+     *
+     * @return NotificationPolicy, the policy
+     */
+    public static NotificationPolicy debounce(long window, TimeUnit unit, NotificationScheduler scheduler) {
+        return new NotificationPolicy(scheduler, window, unit) {
+            @Override
+            OnPropertChangedCallback wrap(OnPropertChangedCallback callback) {
+                return new DebouncedCallback(this, callback);
+            }
+        };
+    }
+
+    /**
+     * Wraps a callback so that it is called according to this policy
+     *
+     * @param callback, the callback to wrap
+     *
+     * @return OnPropertChangedCallback, the wrapping callback
+     */
+    abstract OnPropertChangedCallback wrap(OnPropertChangedCallback callback);
+
+    /**
+     * Calls the wrapped callback at most once per window
+     */
+    private static final class ThrottledCallback implements OnPropertChangedCallback, DelegatingCallback, Runnable {
+        /**
+         * The policy the callback was created by
+         */
+        private final NotificationPolicy policy;
+
+        /**
+         * The wrapped callback
+         */
+        private final OnPropertChangedCallback delegate;
+
+        /**
+         * The time the current window ends
+         */
+        private long windowEnd;
+
+        /**
+         * True if the callback has been called in the current window
+         */
+        private boolean windowOpen;
+
+        /**
+         * True while a call at the end of the window is scheduled
+         */
+        private boolean trailing;
+
+        /**
+         * Constructs a throttled callback
+         *
+         * @param policy, the policy the callback was created by
+         * @param delegate, the wrapped callback
+         */
+        ThrottledCallback(NotificationPolicy policy, OnPropertChangedCallback delegate) {
+            this.policy = policy;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onPropertyChanged() {
+            synchronized (this) {
+                long now = policy.scheduler.nanoTime();
+
+                if (windowOpen && now - windowEnd < 0) {
+                    if (!trailing) {
+                        trailing = true;
+
+                        policy.scheduler.schedule(this, windowEnd - now);
+                    }
+
+                    return;
+                }
+
+                windowOpen = true;
+                windowEnd = now + policy.windowNanos;
+            }
+
+            delegate.onPropertyChanged();
+        }
+
+        /**
+         * Delivers the last change of the window when the window ends
+         */
+        @Override
+        public void run() {
+            synchronized (this) {
+                trailing = false;
+
+                windowEnd = policy.scheduler.nanoTime() + policy.windowNanos;
+            }
+
+            delegate.onPropertyChanged();
+        }
+
+        @Override
+        public OnPropertChangedCallback getDelegate() {
+            return delegate;
+        }
+    }
+
+    /**
+     * Calls the wrapped callback once changes have stopped for the length of the window
+     */
+    private static final class DebouncedCallback implements OnPropertChangedCallback, DelegatingCallback, Runnable {
+        /**
+         * The policy the callback was created by
+         */
+        private final NotificationPolicy policy;
+
+        /**
+         * The wrapped callback
+         */
+        private final OnPropertChangedCallback delegate;
+
+        /**
+         * The time after which the callback may be called
+         */
+        private long deadline;
+
+        /**
+         * True while a call is scheduled
+         */
+        private boolean scheduled;
+
+        /**
+         * Constructs a debounced callback
+         *
+         * @param policy, the policy the callback was created by
+         * @param delegate, the wrapped callback
+         */
+        DebouncedCallback(NotificationPolicy policy, OnPropertChangedCallback delegate) {
+            this.policy = policy;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onPropertyChanged() {
+            synchronized (this) {
+                deadline = policy.scheduler.nanoTime() + policy.windowNanos;
+
+                if (!scheduled) {
+                    scheduled = true;
+
+                    policy.scheduler.schedule(this, policy.windowNanos);
+                }
+            }
+        }
+
+        /**
+         * Calls the wrapped callback if no change happened since it was scheduled, reschedules otherwise
+         */
+        @Override
+        public void run() {
+            synchronized (this) {
+                long remaining = deadline - policy.scheduler.nanoTime();
+
+                if (remaining > 0) {
+                    policy.scheduler.schedule(this, remaining);
+
+                    return;
+                }
+
+                scheduled = false;
+            }
+
+            delegate.onPropertyChanged();
+        }
+
+        @Override
+        public OnPropertChangedCallback getDelegate() {
+            return delegate;
+        }
+    }
+}
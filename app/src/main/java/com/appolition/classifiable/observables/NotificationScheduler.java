@@ -0,0 +1,331 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable.observables;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timer wheel that runs delayed notifications for throttled and debounced callbacks
+ *
+ * All policies share one wheel, so there is no timer or thread per subscription. Tasks are bucketed by tick and
+ * run on the thread that advances the wheel, which is a single daemon thread for the shared instance. That thread
+ * only ticks while timeouts are pending, it is parked while the wheel is empty and unparked by the first schedule().
+ * A wheel created with its own clock is only advanced by calls to advance(), which lets tests drive it with virtual
+ * time
+ */
+public final class NotificationScheduler {
+    /**
+     * The default duration of a tick in milliseconds
+     */
+    private static final long DEFAULT_TICK_MILLIS = 10;
+
+    /**
+     * The default number of buckets
+     */
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /**
+     * The source of time of the wheel
+     */
+    private final Clock clock;
+
+    /**
+     * The duration of a tick in nanoseconds
+     */
+    private final long tickNanos;
+
+    /**
+     * The buckets of the wheel, each the head of a linked list of timeouts
+     */
+    private final Timeout[] wheel;
+
+    /**
+     * The time the wheel started at
+     */
+    private final long startNanos;
+
+    /**
+     * The number of ticks processed so far
+     */
+    private long tick;
+
+    /**
+     * The number of timeouts in the wheel
+     */
+    private int pending;
+
+    /**
+     * The thread advancing the wheel, unparked when a timeout is scheduled in an empty wheel, null if the wheel is
+     * only advanced by calls to advance()
+     */
+    private volatile Thread ticker;
+
+    /**
+     * Constructs a scheduler that is only advanced by calls to advance()
+     *
+     * @param clock, the source of time of the wheel
+     * @param tickDuration, the duration of a tick
+     * @param unit, the unit of tickDuration
+     * @param wheelSize, the number of buckets, rounded up to a power of two
+     */
+    public NotificationScheduler(Clock clock, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickDuration and wheelSize must be positive");
+        }
+
+        this.clock = clock;
+        this.tickNanos = unit.toNanos(tickDuration);
+
+        int buckets = 1;
+
+        while (buckets < wheelSize) {
+            buckets <<= 1;
+        }
+
+        this.wheel = new Timeout[buckets];
+        this.startNanos = clock.nanoTime();
+    }
+
+    /**
+     * Gets the scheduler shared by all policies that do not specify one, starting its thread on first use
+     *
+     * @return NotificationScheduler, the shared scheduler
+     */
+    public static NotificationScheduler shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Gets the current time of the scheduler
+     *
+     * @return long, the current time in nanoseconds
+     */
+    long nanoTime() {
+        return clock.nanoTime();
+    }
+
+    /**
+     * Schedules a task to run once the delay has elapsed, at the granularity of a tick
+     *
+     * @param task, the task to run
+     * @param delayNanos, the delay in nanoseconds
+     */
+    void schedule(Runnable task, long delayNanos) {
+        Thread idle = null;
+
+        synchronized (this) {
+            long now = clock.nanoTime() - startNanos;
+
+            if (pending++ == 0) {
+                // an empty wheel has nothing to run in the ticks that elapsed while it was idle, skip them rather
+                // than walking them on the next advance
+                tick = Math.max(tick, now / tickNanos);
+
+                idle = ticker;
+            }
+
+            long deadline = now + Math.max(delayNanos, 0);
+            long deadlineTick = Math.max((deadline + tickNanos - 1) / tickNanos, tick);
+
+            Timeout timeout = new Timeout(task, (deadlineTick - tick) / wheel.length);
+
+            int bucket = (int) (deadlineTick & (wheel.length - 1));
+
+            timeout.next = wheel[bucket];
+            wheel[bucket] = timeout;
+        }
+
+        if (idle != null) {
+            LockSupport.unpark(idle);
+        }
+    }
+
+    /**
+     * Checks whether no timeout is pending
+     *
+     * @return boolean, true if the wheel is empty
+     */
+    synchronized boolean isIdle() {
+        return pending == 0;
+    }
+
+    /**
+     * Processes every tick that has elapsed according to the clock and runs the tasks that are due
+     *
+     * A task that throws does not keep the other due tasks from running, the first exception is rethrown once
+     * they all ran with the exceptions of later tasks added as suppressed
+     *
+     * @throws RuntimeException, the first exception thrown by a due task
+     */
+    public void advance() {
+        Timeout due = null;
+
+        synchronized (this) {
+            long now = clock.nanoTime() - startNanos;
+
+            while (tick * tickNanos <= now) {
+                int bucket = (int) (tick & (wheel.length - 1));
+
+                Timeout remaining = null;
+                Timeout timeout = wheel[bucket];
+
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+
+                    if (timeout.rounds-- > 0) {
+                        timeout.next = remaining;
+                        remaining = timeout;
+
+                    } else {
+                        timeout.next = due;
+                        due = timeout;
+
+                        --pending;
+                    }
+
+                    timeout = next;
+                }
+
+                wheel[bucket] = remaining;
+
+                ++tick;
+            }
+        }
+
+        RuntimeException failure = null;
+
+        for (Timeout timeout = due; timeout != null; timeout = timeout.next) {
+            try {
+                timeout.task.run();
+
+            } catch (RuntimeException excpt) {
+                if (failure == null) {
+                    failure = excpt;
+
+                } else {
+                    failure.addSuppressed(excpt);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A source of time, in nanoseconds
+     */
+    public interface Clock {
+        /**
+         * Gets the current time
+         *
+         * @return long, the current time in nanoseconds
+         */
+        long nanoTime();
+    }
+
+    /**
+     * A task waiting in a bucket of the wheel
+     */
+    private static final class Timeout {
+        /**
+         * The task to run
+         */
+        final Runnable task;
+
+        /**
+         * The number of full turns of the wheel left before the task is due
+         */
+        long rounds;
+
+        /**
+         * The next timeout in the bucket
+         */
+        Timeout next;
+
+        /**
+         * Constructs a timeout
+         *
+         * @param task, the task to run
+         * @param rounds, the number of full turns of the wheel left before the task is due
+         */
+        Timeout(Runnable task, long rounds) {
+            this.task = task;
+            this.rounds = rounds;
+        }
+    }
+
+    /**
+     * Holds the shared scheduler, created and started on first use
+     */
+    private static final class Shared {
+        /**
+         * The shared scheduler
+         */
+        static final NotificationScheduler INSTANCE = start();
+
+        /**
+         * Creates the shared scheduler and starts the daemon thread that advances it, which parks while the wheel is
+         * empty so an idle process is not woken up every tick
+         *
+         * @return NotificationScheduler, the shared scheduler
+         */
+        private static NotificationScheduler start() {
+            NotificationScheduler scheduler = new NotificationScheduler(System::nanoTime, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+
+            Thread thread = new Thread(() -> {
+                while (true) {
+                    try {
+                        if (scheduler.isIdle()) {
+                            LockSupport.park(scheduler);
+
+                            if (Thread.interrupted()) {
+                                return;
+                            }
+
+                            continue;
+                        }
+
+                        Thread.sleep(DEFAULT_TICK_MILLIS);
+
+                        scheduler.advance();
+
+                    } catch (InterruptedException excpt) {
+                        return;
+
+                    } catch (RuntimeException excpt) {
+                        Thread currentThread = Thread.currentThread();
+
+                        currentThread.getUncaughtExceptionHandler().uncaughtException(currentThread, excpt);
+                    }
+                }
+            }, "ClassifiedObservable-scheduler");
+
+            thread.setDaemon(true);
+
+            scheduler.ticker = thread;
+
+            thread.start();
+
+            return scheduler;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable.observables;
+
+/**
+ * Helpers for bitmasks of classifier ordinals stored as arrays of 64 bit words
+ */
+final class OrdinalMasks {
+    /**
+     * The number of bits in a word
+     */
+    private static final int WORD_SIZE = 64;
+
+    private OrdinalMasks() {
+    }
+
+    /**
+     * Creates an empty mask large enough to hold the specified number of ordinals
+     *
+     * @param count, the number of ordinals the mask must hold
+     *
+     * @return long[], the empty mask
+     */
+    static long[] create(int count) {
+        return new long[(count + WORD_SIZE - 1) / WORD_SIZE];
+    }
+
+    /**
+     * Sets the bit for the specified ordinal
+     *
+     * @param mask, the mask to modify
+     * @param ordinal, the ordinal to set
+     */
+    static void set(long[] mask, int ordinal) {
+        mask[ordinal / WORD_SIZE] |= 1L << ordinal;
+    }
+
+    /**
+     * Checks if the bit for the specified ordinal is set
+     *
+     * @param mask, the mask to check
+     * @param ordinal, the ordinal to check
+     *
+     * @return boolean, true if the bit is set
+     */
+    static boolean isSet(long[] mask, int ordinal) {
+        return (mask[ordinal / WORD_SIZE] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Checks if no bits are set
+     *
+     * @param mask, the mask to check
+     *
+     * @return boolean, true if no bits are set
+     */
+    static boolean isEmpty(long[] mask) {
+        for (long word : mask) {
+            if (word != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
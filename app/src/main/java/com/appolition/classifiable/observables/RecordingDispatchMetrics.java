@@ -0,0 +1,251 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable.observables;
+
+import com.appolition.classifiable.observables.ClassifiedObservable.OnPropertChangedCallback;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dispatch metrics that record the number of notifications and the fan-out of each classifier, a latency
+ * histogram for each callback class and report the callbacks that take longer than a threshold
+ *
+ * Latencies are recorded in power of two buckets, bucket i counts the calls that took at least 2^i and less than
+ * 2^(i + 1) nanoseconds, bucket 0 also counts the calls that took no measurable time
+ */
+public final class RecordingDispatchMetrics implements DispatchMetrics {
+    /**
+     * The number of buckets of a latency histogram
+     */
+    public static final int BUCKETS = 64;
+
+    /**
+     * The statistics of each notified classifier
+     */
+    private final ConcurrentHashMap<Enum<?>, ClassifierStats> classifiers = new ConcurrentHashMap<>();
+
+    /**
+     * The latency histograms of each callback class
+     */
+    private final ConcurrentHashMap<Class<?>, AtomicLongArray> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * The time in nanoseconds from which a callback is reported as slow
+     */
+    private final long slowThresholdNanos;
+
+    /**
+     * The listener to report slow callbacks to, null if slow callbacks are not reported
+     */
+    private final SlowCallbackListener slowCallbackListener;
+
+    /**
+     * Constructs metrics that do not report slow callbacks
+     */
+    public RecordingDispatchMetrics() {
+        this(Long.MAX_VALUE, TimeUnit.NANOSECONDS, null);
+    }
+
+    /**
+     * Constructs metrics that report slow callbacks
+     *
+     * @param slowThreshold, the time from which a callback is reported as slow
+     * @param unit, the unit of the threshold
+     * @param slowCallbackListener, the listener to report slow callbacks to, null if slow callbacks are not reported
+     */
+    public RecordingDispatchMetrics(long slowThreshold, TimeUnit unit, SlowCallbackListener slowCallbackListener) {
+        if (slowThreshold < 0) {
+            throw new IllegalArgumentException("slowThreshold must not be negative");
+        }
+
+        this.slowThresholdNanos = unit.toNanos(slowThreshold);
+        this.slowCallbackListener = slowCallbackListener;
+    }
+
+    @Override
+    public void onNotify(Enum<?> classifier, int fanOut) {
+        ClassifierStats stats = classifiers.get(classifier);
+
+        if (stats == null) {
+            stats = classifiers.computeIfAbsent(classifier, key -> new ClassifierStats());
+        }
+
+        stats.notifications.increment();
+        stats.fanOut.add(fanOut);
+        stats.maxFanOut.accumulateAndGet(fanOut, Math::max);
+    }
+
+    @Override
+    public void onCallback(Enum<?> classifier, OnPropertChangedCallback callback, long nanos) {
+        OnPropertChangedCallback target = callback instanceof DelegatingCallback ? ((DelegatingCallback) callback).getDelegate() : callback;
+
+        Class<?> callbackClass = target == null ? callback.getClass() : target.getClass();
+
+        AtomicLongArray histogram = latencies.get(callbackClass);
+
+        if (histogram == null) {
+            histogram = latencies.computeIfAbsent(callbackClass, key -> new AtomicLongArray(BUCKETS));
+        }
+
+        histogram.incrementAndGet(bucketOf(nanos));
+
+        if (slowCallbackListener != null && nanos >= slowThresholdNanos) {
+            slowCallbackListener.onSlowCallback(classifier, target == null ? callback : target, nanos);
+        }
+    }
+
+    /**
+     * Gets the number of notifications delivered for the specified classifier
+     *
+     * @param classifier, the classifier
+     *
+     * @return long, the number of notifications
+     */
+    public long getNotificationCount(Enum<?> classifier) {
+        ClassifierStats stats = classifiers.get(classifier);
+
+        return stats == null ? 0L : stats.notifications.sum();
+    }
+
+    /**
+     * Gets the total number of callbacks called for the notifications of the specified classifier
+     *
+     * @param classifier, the classifier
+     *
+     * @return long, the total fan-out
+     */
+    public long getFanOut(Enum<?> classifier) {
+        ClassifierStats stats = classifiers.get(classifier);
+
+        return stats == null ? 0L : stats.fanOut.sum();
+    }
+
+    /**
+     * Gets the largest number of callbacks called for a single notification of the specified classifier
+     *
+     * @param classifier, the classifier
+     *
+     * @return int, the largest fan-out
+     */
+    public int getMaxFanOut(Enum<?> classifier) {
+        ClassifierStats stats = classifiers.get(classifier);
+
+        return stats == null ? 0 : (int) stats.maxFanOut.get();
+    }
+
+    /**
+     * Gets the number of notifications delivered for each notified classifier
+     *
+     * @return Map<Enum<?>, Long>, a snapshot of the notification counts
+     */
+    public Map<Enum<?>, Long> getNotificationCounts() {
+        Map<Enum<?>, Long> counts = new HashMap<>();
+
+        for (Map.Entry<Enum<?>, ClassifierStats> entry : classifiers.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().notifications.sum());
+        }
+
+        return counts;
+    }
+
+    /**
+     * Gets the latency histogram of the callbacks of the specified class
+     *
+     * @param callbackClass, the class of the callbacks, the class of the added callback for wrapped callbacks
+     *
+     * @return long[], a snapshot of the BUCKETS counts, all zero if no such callback was called
+     */
+    public long[] getLatencyHistogram(Class<?> callbackClass) {
+        long[] counts = new long[BUCKETS];
+
+        AtomicLongArray histogram = latencies.get(callbackClass);
+
+        if (histogram != null) {
+            for (int i = 0; i < BUCKETS; ++i) {
+                counts[i] = histogram.get(i);
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Discards everything recorded so far
+     *
+     * @return RecordingDispatchMetrics, a reference to this instance
+     */
+    public RecordingDispatchMetrics reset() {
+        classifiers.clear();
+        latencies.clear();
+
+        return this;
+    }
+
+    /**
+     * Gets the histogram bucket of a latency
+     *
+     * @param nanos, the latency in nanoseconds
+     *
+     * @return int, the index of the bucket
+     */
+    static int bucketOf(long nanos) {
+        return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    /**
+     * The statistics of a classifier
+     */
+    private static final class ClassifierStats {
+        /**
+         * The number of notifications
+         */
+        final LongAdder notifications = new LongAdder();
+
+        /**
+         * The total number of callbacks called
+         */
+        final LongAdder fanOut = new LongAdder();
+
+        /**
+         * The largest number of callbacks called for a single notification
+         */
+        final AtomicLong maxFanOut = new AtomicLong();
+    }
+
+    /**
+     * A listener for callbacks that take longer than the threshold
+     */
+    public interface SlowCallbackListener {
+        /**
+         * Called on the dispatching thread after a slow callback returned
+         *
+         * @param classifier, the notified classifier
+         * @param callback, the slow callback
+         * @param nanos, the time the callback took in nanoseconds
+         */
+        void onSlowCallback(Enum<?> classifier, OnPropertChangedCallback callback, long nanos);
+    }
+}
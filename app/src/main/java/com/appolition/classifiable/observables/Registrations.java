@@ -0,0 +1,497 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable.observables;
+
+import com.appolition.classifiable.observables.ClassifiedObservable.OnPropertChangedCallback;
+
+import java.util.Arrays;
+
+/**
+ * The immutable tiers of callback registrations of an observable
+ *
+ * Registrations start out as null, hold a single registration inline in a Single, move to a Small of up to
+ * SMALL_CAPACITY registrations sorted by ordinal, and only then to a table of callback arrays indexed by ordinal, or
+ * to the generated ClassifierDispatcher of the classifiers when there is one. Removing registrations moves back
+ * down the tiers. Every operation returns a new instance rather than modifying
+ * the one passed in, so readers can use whichever instance they observed without locking
+ */
+final class Registrations {
+    /**
+     * The largest number of registrations held without a table
+     */
+    static final int SMALL_CAPACITY = 4;
+
+    /**
+     * The number of bits used for each ordinal packed into a Small
+     */
+    private static final int ORDINAL_BITS = 16;
+
+    /**
+     * Masks a single ordinal packed into a Small
+     */
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+
+    private Registrations() {
+    }
+
+    /**
+     * Adds a registration
+     *
+     * @param registrations, the current registrations, may be null
+     * @param classifier, the classifier to register the callback for
+     * @param callback, the callback to register
+     *
+     * @return Object, the registrations including the new one
+     */
+    static Object add(Object registrations, Enum<?> classifier, OnPropertChangedCallback callback) {
+        int ordinal = classifier.ordinal();
+
+        if (registrations == null) {
+            return new Single(ordinal, callback);
+        }
+
+        if (registrations instanceof OnPropertChangedCallback[][]) {
+            OnPropertChangedCallback[][] table = ((OnPropertChangedCallback[][]) registrations).clone();
+
+            table[ordinal] = append(table[ordinal], callback);
+
+            return table;
+        }
+
+        if (registrations instanceof ClassifierDispatcher) {
+            ClassifierDispatcher<?> dispatcher = (ClassifierDispatcher<?>) registrations;
+
+            return dispatcher.withCallbacks(ordinal, append(dispatcher.callbacks(ordinal), callback));
+        }
+
+        int size = size(registrations);
+
+        if (size < SMALL_CAPACITY) {
+            int[] ordinals = new int[size + 1];
+            OnPropertChangedCallback[] callbacks = new OnPropertChangedCallback[size + 1];
+
+            int index = 0;
+
+            for (int i = 0; i < size; ++i) {
+                if (index == i && ordinalAt(registrations, i) > ordinal) {
+                    ordinals[index] = ordinal;
+                    callbacks[index++] = callback;
+                }
+
+                ordinals[index] = ordinalAt(registrations, i);
+                callbacks[index++] = callbackAt(registrations, i);
+            }
+
+            if (index == size) {
+                ordinals[index] = ordinal;
+                callbacks[index] = callback;
+            }
+
+            return build(ordinals, callbacks, size + 1);
+        }
+
+        ClassifierDispatcher<?> dispatcher = ClassifierDispatcher.of(classifier.getDeclaringClass());
+
+        if (dispatcher != null) {
+            for (int i = 0; i < size; ++i) {
+                dispatcher = dispatcher.withCallbacks(ordinalAt(registrations, i), append(dispatcher.callbacks(ordinalAt(registrations, i)), callbackAt(registrations, i)));
+            }
+
+            return dispatcher.withCallbacks(ordinal, append(dispatcher.callbacks(ordinal), callback));
+        }
+
+        OnPropertChangedCallback[][] table = new OnPropertChangedCallback[classifier.getDeclaringClass().getEnumConstants().length][];
+
+        for (int i = 0; i < size; ++i) {
+            table[ordinalAt(registrations, i)] = append(table[ordinalAt(registrations, i)], callbackAt(registrations, i));
+        }
+
+        table[ordinal] = append(table[ordinal], callback);
+
+        return table;
+    }
+
+    /**
+     * Removes a registration
+     *
+     * @param registrations, the current registrations, must not be null
+     * @param ordinal, the ordinal of the classifier the callback is registered for
+     * @param index, the index of the callback among the callbacks of the classifier
+     *
+     * @return Object, the registrations without the removed one, null if none remain
+     */
+    static Object remove(Object registrations, int ordinal, int index) {
+        return without(registrations, ordinal, index);
+    }
+
+    /**
+     * Removes all registrations for a classifier
+     *
+     * @param registrations, the current registrations, must not be null
+     * @param ordinal, the ordinal of the classifier
+     *
+     * @return Object, the registrations without those of the classifier, null if none remain
+     */
+    static Object clear(Object registrations, int ordinal) {
+        return without(registrations, ordinal, -1);
+    }
+
+    /**
+     * Counts the callbacks registered for a classifier
+     *
+     * @param registrations, the registrations, may be null
+     * @param ordinal, the ordinal of the classifier
+     *
+     * @return int, the number of callbacks
+     */
+    static int count(Object registrations, int ordinal) {
+        if (registrations == null) {
+            return 0;
+        }
+
+        if (registrations instanceof OnPropertChangedCallback[][]) {
+            OnPropertChangedCallback[] enumCallbacks = ((OnPropertChangedCallback[][]) registrations)[ordinal];
+
+            return enumCallbacks == null ? 0 : enumCallbacks.length;
+        }
+
+        if (registrations instanceof ClassifierDispatcher) {
+            OnPropertChangedCallback[] enumCallbacks = ((ClassifierDispatcher<?>) registrations).callbacks(ordinal);
+
+            return enumCallbacks == null ? 0 : enumCallbacks.length;
+        }
+
+        int count = 0;
+
+        for (int i = 0, size = size(registrations); i < size; ++i) {
+            if (ordinalAt(registrations, i) == ordinal) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets a callback registered for a classifier
+     *
+     * @param registrations, the registrations, must not be null
+     * @param ordinal, the ordinal of the classifier
+     * @param index, the index of the callback among the callbacks of the classifier
+     *
+     * @return OnPropertChangedCallback, the callback
+     */
+    static OnPropertChangedCallback get(Object registrations, int ordinal, int index) {
+        if (registrations instanceof OnPropertChangedCallback[][]) {
+            return ((OnPropertChangedCallback[][]) registrations)[ordinal][index];
+        }
+
+        if (registrations instanceof ClassifierDispatcher) {
+            return ((ClassifierDispatcher<?>) registrations).callbacks(ordinal)[index];
+        }
+
+        for (int i = 0, size = size(registrations); i < size; ++i) {
+            if (ordinalAt(registrations, i) == ordinal && index-- == 0) {
+                return callbackAt(registrations, i);
+            }
+        }
+
+        throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     * Gets the number of ordinals to visit to see every registration
+     *
+     * @param registrations, the registrations, may be null
+     *
+     * @return int, one more than the largest ordinal that may have registrations
+     */
+    static int slots(Object registrations) {
+        if (registrations == null) {
+            return 0;
+        }
+
+        if (registrations instanceof OnPropertChangedCallback[][]) {
+            return ((OnPropertChangedCallback[][]) registrations).length;
+        }
+
+        if (registrations instanceof ClassifierDispatcher) {
+            return ((ClassifierDispatcher<?>) registrations).slots();
+        }
+
+        return ordinalAt(registrations, size(registrations) - 1) + 1;
+    }
+
+    /**
+     * Removes one or all registrations of a classifier and moves down the tiers as needed
+     *
+     * @param registrations, the current registrations, must not be null
+     * @param ordinal, the ordinal of the classifier
+     * @param index, the index of the callback to remove, -1 to remove all callbacks of the classifier
+     *
+     * @return Object, the remaining registrations, null if none remain
+     */
+    private static Object without(Object registrations, int ordinal, int index) {
+        if (registrations instanceof OnPropertChangedCallback[][]) {
+            OnPropertChangedCallback[][] table = ((OnPropertChangedCallback[][]) registrations).clone();
+
+            table[ordinal] = remaining(table[ordinal], index);
+
+            int size = 0;
+
+            for (OnPropertChangedCallback[] callbacks : table) {
+                size += callbacks == null ? 0 : callbacks.length;
+            }
+
+            if (size > SMALL_CAPACITY) {
+                return table;
+            }
+
+            return flatten(table, size);
+        }
+
+        if (registrations instanceof ClassifierDispatcher) {
+            ClassifierDispatcher<?> dispatcher = ((ClassifierDispatcher<?>) registrations).withCallbacks(ordinal, remaining(((ClassifierDispatcher<?>) registrations).callbacks(ordinal), index));
+
+            OnPropertChangedCallback[][] table = new OnPropertChangedCallback[dispatcher.slots()][];
+
+            int size = 0;
+
+            for (int i = 0; i < table.length; ++i) {
+                table[i] = dispatcher.callbacks(i);
+
+                size += table[i] == null ? 0 : table[i].length;
+            }
+
+            if (size > SMALL_CAPACITY) {
+                return dispatcher;
+            }
+
+            return flatten(table, size);
+        }
+
+        int size = size(registrations);
+
+        int[] ordinals = new int[size];
+        OnPropertChangedCallback[] callbacks = new OnPropertChangedCallback[size];
+
+        int position = 0;
+        int seen = 0;
+
+        for (int i = 0; i < size; ++i) {
+            if (ordinalAt(registrations, i) == ordinal && (index < 0 || seen++ == index)) {
+                continue;
+            }
+
+            ordinals[position] = ordinalAt(registrations, i);
+            callbacks[position++] = callbackAt(registrations, i);
+        }
+
+        return build(ordinals, callbacks, position);
+    }
+
+    /**
+     * Removes one or all callbacks from the callbacks of a classifier
+     *
+     * @param callbacks, the callbacks of the classifier
+     * @param index, the index of the callback to remove, -1 to remove all callbacks
+     *
+     * @return OnPropertChangedCallback[], the remaining callbacks, null if none remain
+     */
+    private static OnPropertChangedCallback[] remaining(OnPropertChangedCallback[] callbacks, int index) {
+        if (index < 0 || callbacks.length == 1) {
+            return null;
+        }
+
+        OnPropertChangedCallback[] remaining = new OnPropertChangedCallback[callbacks.length - 1];
+
+        System.arraycopy(callbacks, 0, remaining, 0, index);
+        System.arraycopy(callbacks, index + 1, remaining, index, remaining.length - index);
+
+        return remaining;
+    }
+
+    /**
+     * Moves the registrations of a table down to the tier without a table
+     *
+     * @param table, the callbacks indexed by ordinal
+     * @param size, the number of registrations in the table, at most SMALL_CAPACITY
+     *
+     * @return Object, the registrations, null if size is zero
+     */
+    private static Object flatten(OnPropertChangedCallback[][] table, int size) {
+        int[] ordinals = new int[size];
+        OnPropertChangedCallback[] callbacks = new OnPropertChangedCallback[size];
+
+        int position = 0;
+
+        for (int i = 0; i < table.length; ++i) {
+            if (table[i] != null) {
+                for (OnPropertChangedCallback callback : table[i]) {
+                    ordinals[position] = i;
+                    callbacks[position++] = callback;
+                }
+            }
+        }
+
+        return build(ordinals, callbacks, size);
+    }
+
+    /**
+     * Builds the smallest tier for registrations sorted by ordinal
+     *
+     * @param ordinals, the ordinals of the registrations
+     * @param callbacks, the callbacks of the registrations
+     * @param size, the number of registrations, at most SMALL_CAPACITY
+     *
+     * @return Object, the registrations, null if size is zero
+     */
+    private static Object build(int[] ordinals, OnPropertChangedCallback[] callbacks, int size) {
+        if (size == 0) {
+            return null;
+        }
+
+        if (size == 1) {
+            return new Single(ordinals[0], callbacks[0]);
+        }
+
+        long packed = 0;
+
+        for (int i = 0; i < size; ++i) {
+            packed |= (long) ordinals[i] << (i * ORDINAL_BITS);
+        }
+
+        return new Small(packed, callbacks.length == size ? callbacks : Arrays.copyOf(callbacks, size));
+    }
+
+    /**
+     * Appends a callback to an array of callbacks
+     *
+     * @param callbacks, the callbacks, may be null
+     * @param callback, the callback to append
+     *
+     * @return OnPropertChangedCallback[], a new array ending with the callback
+     */
+    private static OnPropertChangedCallback[] append(OnPropertChangedCallback[] callbacks, OnPropertChangedCallback callback) {
+        if (callbacks == null) {
+            return new OnPropertChangedCallback[] {callback};
+        }
+
+        OnPropertChangedCallback[] appended = Arrays.copyOf(callbacks, callbacks.length + 1);
+
+        appended[callbacks.length] = callback;
+
+        return appended;
+    }
+
+    /**
+     * Gets the number of registrations held without a table
+     *
+     * @param registrations, a Single or a Small
+     *
+     * @return int, the number of registrations
+     */
+    private static int size(Object registrations) {
+        return registrations instanceof Single ? 1 : ((Small) registrations).callbacks.length;
+    }
+
+    /**
+     * Gets the ordinal of a registration held without a table
+     *
+     * @param registrations, a Single or a Small
+     * @param i, the index of the registration
+     *
+     * @return int, the ordinal
+     */
+    private static int ordinalAt(Object registrations, int i) {
+        if (registrations instanceof Single) {
+            return ((Single) registrations).ordinal;
+        }
+
+        return (int) ((((Small) registrations).ordinals >>> (i * ORDINAL_BITS)) & ORDINAL_MASK);
+    }
+
+    /**
+     * Gets the callback of a registration held without a table
+     *
+     * @param registrations, a Single or a Small
+     * @param i, the index of the registration
+     *
+     * @return OnPropertChangedCallback, the callback
+     */
+    private static OnPropertChangedCallback callbackAt(Object registrations, int i) {
+        if (registrations instanceof Single) {
+            return ((Single) registrations).callback;
+        }
+
+        return ((Small) registrations).callbacks[i];
+    }
+
+    /**
+     * A single registration
+     */
+    static final class Single {
+        /**
+         * The ordinal of the classifier
+         */
+        final int ordinal;
+
+        /**
+         * The registered callback
+         */
+        final OnPropertChangedCallback callback;
+
+        /**
+         * Constructs a single registration
+         *
+         * @param ordinal, the ordinal of the classifier
+         * @param callback, the registered callback
+         */
+        Single(int ordinal, OnPropertChangedCallback callback) {
+            this.ordinal = ordinal;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * Up to SMALL_CAPACITY registrations sorted by ordinal, with the ordinals packed into a single long
+     */
+    static final class Small {
+        /**
+         * The ordinals of the registrations, ORDINAL_BITS each, the first registration in the lowest bits
+         */
+        final long ordinals;
+
+        /**
+         * The registered callbacks
+         */
+        final OnPropertChangedCallback[] callbacks;
+
+        /**
+         * Constructs a small set of registrations
+         *
+         * @param ordinals, the packed ordinals of the registrations
+         * @param callbacks, the registered callbacks
+         */
+        Small(long ordinals, OnPropertChangedCallback[] callbacks) {
+            this.ordinals = ordinals;
+            this.callbacks = callbacks;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable.observables;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Hands the notifications of an observable to an executor one at a time, in the order they were raised
+ *
+ * A classifier that is already waiting in the queue is not queued again, and classifiers notified while a _ALL
+ * notification is waiting are dropped since the _ALL delivery covers them, so a burst of updates costs one delivery
+ *
+ * The callbacks added for several classifiers are called once the queue runs empty, once for all the classifiers
+ * delivered by the drain
+ *
+ * With an executor that runs tasks on the calling thread the queue acts as a trampoline, notifications raised by
+ * callbacks are queued and delivered iteratively by the drain that is already running instead of recursing
+ */
+final class SerialDispatchQueue<ClassifiersType extends Enum<ClassifiersType>> implements Runnable {
+    /**
+     * The ordinal for notifying all properties changed
+     */
+    private static final int _ALL = 0;
+
+    /**
+     * The observable whose notifications are dispatched
+     */
+    private final ClassifiedObservable<ClassifiersType> observable;
+
+    /**
+     * The executor to run the drain on
+     */
+    private final Executor executor;
+
+    /**
+     * The number of deliveries a single drain may make before it is considered runaway, 0 for no limit
+     */
+    private final int cascadeLimit;
+
+    /**
+     * The classifiers indexed by ordinal, set when the queue is allocated
+     */
+    private ClassifiersType[] classifiers;
+
+    /**
+     * The pending ordinals in the order they were raised, each ordinal is present at most once
+     */
+    private int[] queue;
+
+    /**
+     * The pending ordinals
+     */
+    private long[] pending;
+
+    /**
+     * The index of the oldest pending ordinal
+     */
+    private int head;
+
+    /**
+     * The number of pending ordinals
+     */
+    private int size;
+
+    /**
+     * True while a drain is scheduled or running
+     */
+    private boolean draining;
+
+    /**
+     * Constructs a queue
+     *
+     * @param observable, the observable whose notifications are dispatched
+     * @param executor, the executor to run the drain on
+     * @param cascadeLimit, the number of deliveries a single drain may make, 0 for no limit
+     */
+    SerialDispatchQueue(ClassifiedObservable<ClassifiersType> observable, Executor executor, int cascadeLimit) {
+        this.observable = observable;
+        this.executor = executor;
+        this.cascadeLimit = cascadeLimit;
+    }
+
+    /**
+     * Queues a notification and schedules a drain if none is pending
+     *
+     * @param classifier, the classifier that was notified
+     */
+    void enqueue(ClassifiersType classifier) {
+        synchronized (this) {
+            if (queue == null) {
+                allocate(classifier.getDeclaringClass().getEnumConstants());
+            }
+
+            if (!offer(classifier.ordinal())) {
+                return;
+            }
+        }
+
+        schedule();
+    }
+
+    /**
+     * Queues the notifications in a mask and schedules a drain if none is pending
+     *
+     * @param mask, the mask of notified classifier ordinals
+     * @param order, the order to queue the ordinals in, null for ordinal order
+     * @param classifiers, the classifiers indexed by ordinal
+     */
+    void enqueue(long[] mask, int[] order, ClassifiersType[] classifiers) {
+        boolean queued = false;
+
+        synchronized (this) {
+            if (queue == null) {
+                allocate(classifiers);
+            }
+
+            for (int index = 0, last = order == null ? classifiers.length : order.length; index < last; ++index) {
+                int ordinal = order == null ? index : order[index];
+
+                if (OrdinalMasks.isSet(mask, ordinal)) {
+                    queued |= offer(ordinal);
+                }
+            }
+        }
+
+        if (queued) {
+            schedule();
+        }
+    }
+
+    /**
+     * Drains the pending notifications on the executor
+     */
+    @Override
+    public void run() {
+        boolean completed = false;
+
+        long delivered = 0L;
+
+        int deliveries = 0;
+
+        try {
+            while (true) {
+                ClassifiersType classifier;
+
+                synchronized (this) {
+                    if (size == 0 && delivered == 0L) {
+                        draining = false;
+                        completed = true;
+
+                        return;
+                    }
+
+                    if (size == 0) {
+                        classifier = null;
+
+                    } else {
+                        int ordinal = queue[head];
+
+                        head = (head + 1) % queue.length;
+                        --size;
+
+                        pending[ordinal / 64] &= ~(1L << ordinal);
+
+                        classifier = classifiers[ordinal];
+                    }
+                }
+
+                if (classifier == null) {
+                    long changed = delivered;
+
+                    delivered = 0L;
+
+                    observable.dispatchMasked(changed);
+
+                    continue;
+                }
+
+                if (cascadeLimit > 0 && ++deliveries > cascadeLimit) {
+                    discardPending();
+
+                    throw new IllegalStateException("Notification cascade exceeded " + cascadeLimit + " deliveries at " + classifier);
+                }
+
+                observable.dispatch(classifier);
+
+                if (classifier.ordinal() < 64) {
+                    delivered |= 1L << classifier.ordinal();
+                }
+            }
+
+        } finally {
+            if (!completed) {
+                boolean reschedule;
+
+                synchronized (this) {
+                    draining = false;
+
+                    reschedule = size > 0;
+                }
+
+                if (reschedule) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * Allocates the queue, must be called while holding the monitor
+     *
+     * @param classifiers, the classifiers indexed by ordinal, the queue holds each of them at most once
+     */
+    private void allocate(ClassifiersType[] classifiers) {
+        this.classifiers = classifiers;
+
+        queue = new int[classifiers.length];
+        pending = OrdinalMasks.create(classifiers.length);
+    }
+
+    /**
+     * Drops the pending notifications
+     */
+    private synchronized void discardPending() {
+        head = 0;
+        size = 0;
+
+        Arrays.fill(pending, 0L);
+    }
+
+    /**
+     * Adds an ordinal to the queue, must be called while holding the monitor
+     *
+     * @param ordinal, the ordinal to add
+     *
+     * @return boolean, true if a drain needs to be scheduled
+     */
+    private boolean offer(int ordinal) {
+        if (OrdinalMasks.isSet(pending, ordinal) || OrdinalMasks.isSet(pending, _ALL)) {
+            return false;
+        }
+
+        OrdinalMasks.set(pending, ordinal);
+
+        queue[(head + size) % queue.length] = ordinal;
+        ++size;
+
+        if (draining) {
+            return false;
+        }
+
+        draining = true;
+
+        return true;
+    }
+
+    /**
+     * Schedules a drain on the executor
+     */
+    private void schedule() {
+        try {
+            executor.execute(this);
+
+        } catch (RuntimeException excpt) {
+            synchronized (this) {
+                draining = false;
+            }
+
+            throw excpt;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable;
+
+import com.appolition.classifiable.observables.ChangeJournal;
+import com.appolition.classifiable.observables.ClassifiedObservable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class ChangeJournalTests {
+    private static class Foo extends ClassifiedObservable<FooClassifiers> {
+    }
+
+    private enum FooClassifiers {
+        _ALL,
+
+        URL,
+
+        NAME,
+
+        AGE
+    }
+
+    private static class Bar extends ClassifiedObservable<BarClassifiers> {
+    }
+
+    private enum BarClassifiers {
+        _ALL,
+
+        URL
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void attach_NotificationsRecordedInOrder() throws IOException {
+        File directory = folder.newFolder();
+
+        Foo foo = new Foo();
+
+        try (ChangeJournal journal = ChangeJournal.open(directory, 16)) {
+            journal.attach(foo, 42L);
+
+            foo.notifyPropertyChanged(FooClassifiers.URL);
+            foo.notifyPropertyChanged(FooClassifiers.AGE, 3, 4);
+            foo.notifyPropertyChanged(FooClassifiers.NAME, 1.5, 2.5);
+            foo.notifyPropertyChanged(FooClassifiers.NAME, false, true);
+        }
+
+        List<String> records = new ArrayList<>();
+
+        ChangeJournal.reader(directory).forEach((timestamp, objectId, ordinal, type, oldValue, newValue) ->
+                records.add(objectId + " " + ordinal + " " + type + " " + oldValue + " " + newValue));
+
+        assertEquals("Records were not written in order", Arrays.asList(
+                "42 1 " + ChangeJournal.TYPE_NONE + " 0 0",
+                "42 3 " + ChangeJournal.TYPE_INT + " 3 4",
+                "42 2 " + ChangeJournal.TYPE_DOUBLE + " " + Double.doubleToRawLongBits(1.5) + " " + Double.doubleToRawLongBits(2.5),
+                "42 2 " + ChangeJournal.TYPE_BOOLEAN + " 0 1"), records);
+    }
+
+    @Test
+    public void append_SegmentFull_Rotated() throws IOException {
+        File directory = folder.newFolder();
+
+        Foo foo = new Foo();
+
+        try (ChangeJournal journal = ChangeJournal.open(directory, 4)) {
+            journal.attach(foo, 1L);
+
+            for (int i = 0; i < 10; ++i) {
+                foo.notifyPropertyChanged(FooClassifiers.AGE, i, i + 1);
+            }
+        }
+
+        assertEquals("Segments were not rotated", 3, directory.listFiles().length);
+
+        List<Long> values = new ArrayList<>();
+
+        long count = ChangeJournal.reader(directory).forEach((timestamp, objectId, ordinal, type, oldValue, newValue) -> values.add(newValue));
+
+        assertEquals("Records were lost across segments", 10L, count);
+        assertEquals("Records were not read in order", Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), values);
+    }
+
+    @Test
+    public void open_ExistingJournal_AppendsNewSegments() throws IOException {
+        File directory = folder.newFolder();
+
+        Foo foo = new Foo();
+
+        try (ChangeJournal journal = ChangeJournal.open(directory, 8)) {
+            journal.attach(foo, 1L);
+
+            foo.notifyPropertyChanged(FooClassifiers.URL);
+        }
+
+        try (ChangeJournal journal = ChangeJournal.open(directory, 8)) {
+            journal.attach(foo, 1L);
+
+            foo.notifyPropertyChanged(FooClassifiers.NAME);
+        }
+
+        assertEquals("Reopening overwrote earlier records", 2L, ChangeJournal.reader(directory).forEach((timestamp, objectId, ordinal, type, oldValue, newValue) -> {
+        }));
+    }
+
+    @Test
+    public void replay_BoundObservablesNotified() throws IOException {
+        File directory = folder.newFolder();
+
+        Foo recorded = new Foo();
+        Foo other = new Foo();
+
+        try (ChangeJournal journal = ChangeJournal.open(directory, 16)) {
+            journal.attach(recorded, 7L).attach(other, 8L);
+
+            recorded.notifyPropertyChanged(FooClassifiers.URL);
+            other.notifyPropertyChanged(FooClassifiers.URL);
+            recorded.notifyPropertyChanged(FooClassifiers.AGE, 30L, 31L);
+        }
+
+        Foo replayed = new Foo();
+
+        List<String> calls = new ArrayList<>();
+
+        replayed.add(FooClassifiers.URL, () -> calls.add("url"));
+        replayed.add(FooClassifiers.AGE, (ClassifiedObservable.OnLongPropertyChangedCallback) (oldValue, newValue) -> calls.add("age " + oldValue + " " + newValue));
+
+        long count = ChangeJournal.reader(directory)
+                .bind(7L, replayed, FooClassifiers.class)
+                .replay();
+
+        assertEquals("Unbound records were replayed", 2L, count);
+        assertEquals("Records were not replayed into the observable", Arrays.asList("url", "age 30 31"), calls);
+    }
+
+    @Test
+    public void detach_NotificationsNotRecorded() throws IOException {
+        File directory = folder.newFolder();
+
+        Foo foo = new Foo();
+
+        try (ChangeJournal journal = ChangeJournal.open(directory, 16)) {
+            journal.attach(foo, 1L).detach(foo);
+
+            foo.notifyPropertyChanged(FooClassifiers.URL);
+        }
+
+        assertEquals("Detached observable was recorded", 0L, ChangeJournal.reader(directory).forEach((timestamp, objectId, ordinal, type, oldValue, newValue) -> {
+        }));
+    }
+
+    @Test
+    public void close_AttachedObservableNotificationDropped() throws IOException {
+        Foo foo = new Foo();
+
+        List<String> calls = new ArrayList<>();
+
+        foo.add(FooClassifiers.URL, () -> calls.add("url"));
+
+        ChangeJournal journal = ChangeJournal.open(folder.newFolder(), 16);
+
+        journal.attach(foo, 1L).close();
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("Callbacks were not notified after the journal closed", Arrays.asList("url"), calls);
+        assertEquals("Dropped record was not counted", 1L, journal.getDroppedCount());
+    }
+
+    @Test
+    public void replay_OrdinalBeyondBoundClassifiers_Skipped() throws IOException {
+        File directory = folder.newFolder();
+
+        Foo recorded = new Foo();
+
+        try (ChangeJournal journal = ChangeJournal.open(directory, 16)) {
+            journal.attach(recorded, 1L);
+
+            recorded.notifyPropertyChanged(FooClassifiers.URL);
+            recorded.notifyPropertyChanged(FooClassifiers.AGE);
+        }
+
+        Bar replayed = new Bar();
+
+        List<String> calls = new ArrayList<>();
+
+        replayed.add(BarClassifiers.URL, () -> calls.add("url"));
+
+        long count = ChangeJournal.reader(directory)
+                .bind(1L, replayed, BarClassifiers.class)
+                .replay();
+
+        assertEquals("Record beyond the bound classifiers was replayed", 1L, count);
+        assertEquals("Record within the bound classifiers was not replayed", Arrays.asList("url"), calls);
+    }
+}
@@ -0,0 +1,155 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable;
+
+import com.appolition.classifiable.observables.ClassifiedObservable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+import org.openjdk.jol.vm.VirtualMachine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ClassifiedObservableFootprintTests {
+    private static class Foo extends ClassifiedObservable<FooClassifiers> {
+    }
+
+    private enum FooClassifiers {
+        _ALL,
+        P1, P2, P3, P4, P5, P6, P7, P8, P9, P10, P11, P12, P13, P14, P15, P16
+    }
+
+    private static class Callback implements ClassifiedObservable.OnPropertChangedCallback {
+        @Override
+        public void onPropertyChanged() {
+            //noop
+        }
+    }
+
+    private static final Callback CALLBACK = new Callback();
+
+    private Foo foo;
+
+    private int added;
+
+    @Before
+    public void setup() {
+        foo = new Foo();
+
+        added = 0;
+    }
+
+    private long footprint(Object root) {
+        return GraphLayout.parseInstance(root, CALLBACK).totalSize() - GraphLayout.parseInstance(CALLBACK).totalSize();
+    }
+
+    private static long align(long size) {
+        int alignment = VM.current().objectAlignment();
+
+        return (size + alignment - 1) / alignment * alignment;
+    }
+
+    private static long legacyFootprint(int listeners) {
+        FooClassifiers[] classifiers = FooClassifiers.values();
+
+        Map<FooClassifiers, List<ClassifiedObservable.OnPropertChangedCallback>> legacy = new HashMap<>();
+
+        Object[] shared = new Object[listeners + 1];
+
+        for (int i = 0; i < listeners; ++i) {
+            List<ClassifiedObservable.OnPropertChangedCallback> legacyList = new ArrayList<>();
+            legacyList.add(CALLBACK);
+            legacy.put(classifiers[1 + i], legacyList);
+
+            shared[i] = classifiers[1 + i];
+        }
+
+        shared[listeners] = CALLBACK;
+
+        return GraphLayout.parseInstance(legacy).totalSize() - GraphLayout.parseInstance(shared).totalSize();
+    }
+
+    private long addAndMeasure(int listeners) {
+        FooClassifiers[] classifiers = FooClassifiers.values();
+
+        for (int i = 0; i < listeners; ++i, ++added) {
+            foo.add(classifiers[1 + added % (classifiers.length - 1)], CALLBACK);
+        }
+
+        return footprint(foo);
+    }
+
+    @Test
+    public void footprint_GrowsByTier() {
+        long instance = ClassLayout.parseClass(Foo.class).instanceSize();
+
+        long none = footprint(foo);
+        long single = addAndMeasure(1);
+        long small = addAndMeasure(3);
+        long table = addAndMeasure(1);
+
+        VirtualMachine vm = VM.current();
+
+        long reference = vm.sizeOfField("java.lang.Object");
+
+        // an ordinal and a callback
+        long singleBound = align(vm.objectHeaderSize() + 4 + reference);
+
+        // the packed ordinals and an array of as many callbacks
+        long smallBound = align(vm.objectHeaderSize() + 8 + reference) + align(vm.arrayHeaderSize() + 4 * reference);
+
+        assertEquals("No listeners allocated registrations", instance, none);
+        assertTrue(String.format("Single listener tier takes %d bytes, more than %d", single - none, singleBound), single - none <= singleBound);
+        assertTrue(String.format("Small tier takes %d bytes for 4 listeners, more than %d", small - none, smallBound), small - none <= smallBound);
+        assertTrue(String.format("Table tier takes %d bytes for 5 listeners, not less than a HashMap registry", table - none), table - none < legacyFootprint(5));
+        assertTrue("Single listener tier is not smaller than the HashMap registry", single - none < legacyFootprint(1));
+        assertTrue("Tiers do not grow with listeners", none < single && single < small && small < table);
+    }
+
+    @Test
+    public void footprint_ShrinksByTierOnRemove() {
+        long none = footprint(foo);
+        long single = addAndMeasure(1);
+
+        addAndMeasure(4);
+
+        foo.clear(FooClassifiers.P2);
+        foo.clear(FooClassifiers.P3);
+        foo.clear(FooClassifiers.P4);
+        foo.clear(FooClassifiers.P5);
+
+        assertEquals("Registrations did not move back to the single tier", single, footprint(foo));
+
+        foo.clear();
+
+        assertEquals("Registrations were not released", none, footprint(foo));
+    }
+}
@@ -0,0 +1,265 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable;
+
+import com.appolition.classifiable.observables.ClassifiedObservableList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ClassifiedObservableListTests {
+    private static class RecordingCallback implements ClassifiedObservableList.OnListChangedCallback {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onItemRangeInserted(int start, int count) {
+            events.add("inserted " + start + " " + count);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int start, int count) {
+            events.add("removed " + start + " " + count);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromIndex, int toIndex, int count) {
+            events.add("moved " + fromIndex + " " + toIndex + " " + count);
+        }
+
+        @Override
+        public void onItemRangeChanged(int start, int count) {
+            events.add("changed " + start + " " + count);
+        }
+    }
+
+    private ClassifiedObservableList<Integer> list;
+
+    private RecordingCallback callback;
+
+    @Before
+    public void setup() {
+        list = new ClassifiedObservableList<>(Arrays.asList(0, 1, 2, 3, 4, 5));
+
+        callback = new RecordingCallback();
+
+        list.addOnListChangedCallback(callback);
+    }
+
+    @Test
+    public void add_InsertedEventDelivered() {
+        list.add(7);
+        list.add(0, 9);
+
+        assertEquals("Inserted events were not delivered", Arrays.asList("inserted 6 1", "inserted 0 1"), callback.events);
+        assertEquals("Items were not inserted", Arrays.asList(9, 0, 1, 2, 3, 4, 5, 7), list);
+    }
+
+    @Test
+    public void set_ChangedEventDelivered() {
+        list.set(2, 20);
+
+        assertEquals("Changed event was not delivered", Arrays.asList("changed 2 1"), callback.events);
+    }
+
+    @Test
+    public void remove_RemovedEventDelivered() {
+        list.remove(3);
+
+        assertEquals("Removed event was not delivered", Arrays.asList("removed 3 1"), callback.events);
+    }
+
+    @Test
+    public void move_MovedEventDelivered() {
+        list.move(0, 5);
+
+        assertEquals("Moved event was not delivered", Arrays.asList("moved 0 5 1"), callback.events);
+        assertEquals("Item was not moved", Arrays.asList(1, 2, 3, 4, 5, 0), list);
+    }
+
+    @Test
+    public void addAll_SingleInsertedEvent() {
+        list.addAll(2, Arrays.asList(7, 8, 9));
+
+        assertEquals("Bulk insert was not a single event", Arrays.asList("inserted 2 3"), callback.events);
+    }
+
+    @Test
+    public void clear_SingleRemovedEvent() {
+        list.clear();
+
+        assertEquals("Clear was not a single event", Arrays.asList("removed 0 6"), callback.events);
+    }
+
+    @Test
+    public void subListClear_SingleRemovedEvent() {
+        list.subList(1, 4).clear();
+
+        assertEquals("Range removal was not a single event", Arrays.asList("removed 1 3"), callback.events);
+        assertEquals("Range was not removed", Arrays.asList(0, 4, 5), list);
+    }
+
+    @Test
+    public void removeIf_Contiguous_SingleRemovedEvent() {
+        list.removeIf(item -> item >= 2 && item <= 4);
+
+        assertEquals("Contiguous removal was not a single event", Arrays.asList("removed 2 3"), callback.events);
+        assertEquals("Items were not removed", Arrays.asList(0, 1, 5), list);
+    }
+
+    @Test
+    public void removeIf_Scattered_RemovedAndShiftedRange() {
+        list.removeIf(item -> item % 2 == 1);
+
+        assertEquals("Scattered removal was not described exactly", Arrays.asList("removed 1 3", "changed 1 2"), callback.events);
+        assertEquals("Items were not removed", Arrays.asList(0, 2, 4), list);
+    }
+
+    @Test
+    public void removeIf_NoMatch_NoEvent() {
+        assertTrue("Nothing should be removed", !list.removeIf(item -> item > 10));
+
+        assertTrue("Event was delivered without a change", callback.events.isEmpty());
+    }
+
+    @Test
+    public void removeAll_Contiguous_SingleRemovedEvent() {
+        assertTrue("Items should be removed", list.removeAll(Arrays.asList(2, 3, 4, 9)));
+
+        assertEquals("Contiguous removal was not a single event", Arrays.asList("removed 2 3"), callback.events);
+        assertEquals("Items were not removed", Arrays.asList(0, 1, 5), list);
+    }
+
+    @Test
+    public void removeAll_Scattered_RemovedAndShiftedRange() {
+        list.removeAll(Arrays.asList(1, 3, 5));
+
+        assertEquals("Scattered removal was not described exactly", Arrays.asList("removed 1 3", "changed 1 2"), callback.events);
+        assertEquals("Items were not removed", Arrays.asList(0, 2, 4), list);
+    }
+
+    @Test
+    public void retainAll_Contiguous_SingleRemovedEvent() {
+        assertTrue("Items should be removed", list.retainAll(Arrays.asList(0, 1, 2)));
+
+        assertEquals("Contiguous removal was not a single event", Arrays.asList("removed 3 3"), callback.events);
+        assertEquals("Items were not retained", Arrays.asList(0, 1, 2), list);
+    }
+
+    @Test
+    public void retainAll_AllRetained_NoEvent() {
+        assertTrue("Nothing should be removed", !list.retainAll(Arrays.asList(0, 1, 2, 3, 4, 5)));
+
+        assertTrue("Event was delivered without a change", callback.events.isEmpty());
+    }
+
+    @Test
+    public void sort_SingleChangedEvent() {
+        list.sort(Collections.reverseOrder());
+
+        assertEquals("Sort was not a single event", Arrays.asList("changed 0 6"), callback.events);
+        assertEquals("Items were not sorted", Arrays.asList(5, 4, 3, 2, 1, 0), list);
+    }
+
+    @Test
+    public void batch_ConsecutiveRangesMerged() {
+        ClassifiedObservableList.Batch batch = list.batch();
+
+        list.add(6);
+        list.add(7);
+        list.add(8);
+        list.set(7, 70);
+
+        list.remove(0);
+        list.remove(0);
+
+        list.set(1, 10);
+        list.set(2, 20);
+
+        assertTrue("Events were delivered while the batch was open", callback.events.isEmpty());
+
+        batch.close();
+
+        assertEquals("Consecutive ranges were not merged",
+                Arrays.asList("inserted 6 3", "removed 0 2", "changed 1 2"), callback.events);
+    }
+
+    @Test
+    public void batch_BackwardRemovalsMerged() {
+        list.beginBatch();
+
+        list.remove(4);
+        list.remove(3);
+        list.remove(2);
+
+        list.endBatch();
+
+        assertEquals("Backward removals were not merged", Arrays.asList("removed 2 3"), callback.events);
+    }
+
+    @Test
+    public void batch_NonConsecutiveRangesKeptInOrder() {
+        list.beginBatch();
+
+        list.add(0, 9);
+        list.remove(4);
+        list.move(0, 2);
+
+        list.endBatch();
+
+        assertEquals("Ranges were not delivered in order",
+                Arrays.asList("inserted 0 1", "removed 4 1", "moved 0 2 1"), callback.events);
+    }
+
+    @Test
+    public void iteratorRemove_RemovedEventDelivered() {
+        Iterator<Integer> iterator = list.iterator();
+
+        iterator.next();
+        iterator.remove();
+
+        assertEquals("Iterator removal was not delivered", Arrays.asList("removed 0 1"), callback.events);
+    }
+
+    @Test
+    public void removeOnListChangedCallback_NoEventDelivered() {
+        list.removeOnListChangedCallback(callback);
+
+        list.add(1);
+
+        assertTrue("Removed callback was called", callback.events.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void endBatch_NoBatchOpen() {
+        list.endBatch();
+    }
+}
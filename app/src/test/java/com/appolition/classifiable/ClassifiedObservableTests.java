@@ -19,12 +19,18 @@
 package com.appolition.classifiable;
 
 import com.appolition.classifiable.observables.ClassifiedObservable;
+import com.appolition.classifiable.observables.NotificationPolicy;
+import com.appolition.classifiable.observables.NotificationScheduler;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -52,7 +58,9 @@ public class ClassifiedObservableTests {
     private enum FooClassifiers {
         _ALL,
 
-        URL
+        URL,
+
+        NAME
     }
 
     private Foo foo;
@@ -83,11 +91,7 @@ public class ClassifiedObservableTests {
 
         assertNotNull("Callbacks not null", foo.callbacks);
 
-        assertEquals("Callback was not added", 1, foo.callbacks.size());
-
-        List<ClassifiedObservable.OnPropertChangedCallback> callbacks = foo.callbacks.get(FooClassifiers.URL);
-
-        assertEquals("Callback  was not added", 1, callbacks.size());
+        assertEquals("Callback  was not added", 1, foo.getCallbackCount(FooClassifiers.URL));
     }
 
     @Test
@@ -113,7 +117,7 @@ public class ClassifiedObservableTests {
 
         assertNotNull("Callbacks map was created", foo.callbacks);
 
-        assertNull("Classifier callback list was created", foo.callbacks.get(FooClassifiers.URL));
+        assertEquals("Classifier callback was created", 0, foo.getCallbackCount(FooClassifiers.URL));
     }
 
     @Test
@@ -139,9 +143,7 @@ public class ClassifiedObservableTests {
 
         assertNotNull("Callback map was not created", foo.callbacks);
 
-        assertNotNull("Callback list was not created", foo.callbacks.get(FooClassifiers.URL));
-
-        assertEquals("Callback was not add", 1, foo.callbacks.get(FooClassifiers.URL).size());
+        assertEquals("Callback was not add", 1, foo.getCallbackCount(FooClassifiers.URL));
 
         foo.remove(FooClassifiers.URL, callback);
 
@@ -244,7 +246,7 @@ public class ClassifiedObservableTests {
             latch.countDown();
         });
 
-        foo.callbacks.put(FooClassifiers.URL, null);
+        foo.clear(FooClassifiers.URL);
 
         foo.notifyPropertyChanged(FooClassifiers.URL);
 
@@ -312,7 +314,7 @@ public class ClassifiedObservableTests {
             latch.countDown();
         });
 
-        foo.callbacks.put(FooClassifiers.URL, null);
+        foo.clear(FooClassifiers.URL);
 
         foo.notifyPropertyChanged(FooClassifiers._ALL);
 
@@ -322,4 +324,751 @@ public class ClassifiedObservableTests {
 
         assertFalse("URL callback was not called", secondCallbackCalled);
     }
+
+    @Test
+    public void remove_TwoCallbacksAdded_FirstCallbackRemoved() {
+        ClassifiedObservable.OnPropertChangedCallback first = () -> firstCallbackCalled = true;
+        ClassifiedObservable.OnPropertChangedCallback second = () -> secondCallbackCalled = true;
+
+        foo.add(FooClassifiers.URL, first);
+        foo.add(FooClassifiers.URL, second);
+
+        foo.remove(FooClassifiers.URL, first);
+
+        assertEquals("Callback was not removed", 1, foo.getCallbackCount(FooClassifiers.URL));
+
+        foo.setUrl("bar");
+
+        assertFalse("Removed callback was called", firstCallbackCalled);
+
+        assertTrue("Remaining callback was not called", secondCallbackCalled);
+    }
+
+    @Test
+    public void notifyPropertChanged_AllCallbackAdded_AllPropertiesChanged_CalledOnce() {
+        int[] calls = new int[1];
+
+        foo.add(FooClassifiers._ALL, () -> calls[0]++);
+
+        foo.notifyPropertyChanged(FooClassifiers._ALL);
+
+        assertEquals("_ALL callback was not called exactly once", 1, calls[0]);
+    }
+
+    @Test
+    public void notifyPropertChanged_BlockedCallback_DoesNotBlockAdd() throws InterruptedException {
+        CountDownLatch dispatching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        foo.add(FooClassifiers.URL, () -> {
+            dispatching.countDown();
+
+            try {
+                release.await(5, TimeUnit.SECONDS);
+
+            } catch (InterruptedException excpt) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread notifier = new Thread(() -> foo.setUrl("bar"));
+        notifier.start();
+
+        assertTrue("Callback was not called", dispatching.await(5, TimeUnit.SECONDS));
+
+        Thread adder = new Thread(() -> foo.add(FooClassifiers.URL, () -> secondCallbackCalled = true));
+        adder.start();
+        adder.join(1000);
+
+        assertFalse("Add was blocked by a dispatching callback", adder.isAlive());
+
+        release.countDown();
+        notifier.join();
+
+        assertEquals("Callback was not added", 2, foo.getCallbackCount(FooClassifiers.URL));
+    }
+
+    @Test
+    public void batch_RepeatedNotifications_CallbackCalledOnce() {
+        int[] calls = new int[1];
+
+        foo.add(FooClassifiers.URL, () -> calls[0]++);
+
+        ClassifiedObservable.Batch batch = foo.batch();
+
+        foo.setUrl("bar");
+        foo.setUrl("baz");
+
+        assertEquals("Callback was called inside the batch", 0, calls[0]);
+
+        batch.close();
+
+        assertEquals("Callback was not called exactly once", 1, calls[0]);
+    }
+
+    @Test
+    public void batch_CallbackRegisteredForSeveralClassifiers_CalledOnce() {
+        int[] calls = new int[1];
+
+        ClassifiedObservable.OnPropertChangedCallback callback = () -> calls[0]++;
+
+        foo.add(FooClassifiers.URL, callback);
+        foo.add(FooClassifiers.NAME, callback);
+
+        foo.beginBatch();
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+        foo.endBatch();
+
+        assertEquals("Callback was not called exactly once", 1, calls[0]);
+    }
+
+    @Test
+    public void batch_WeakCallbackRegisteredForSeveralClassifiers_CalledOnce() {
+        int[] calls = new int[1];
+
+        ClassifiedObservable.OnPropertChangedCallback callback = () -> calls[0]++;
+
+        foo.addWeak(FooClassifiers.URL, callback);
+        foo.addWeak(FooClassifiers.NAME, callback);
+
+        foo.beginBatch();
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+        foo.endBatch();
+
+        assertEquals("Weak callback was not called exactly once", 1, calls[0]);
+    }
+
+    @Test
+    public void batch_PolicyCallbackRegisteredForSeveralClassifiers_CalledOnce() {
+        int[] calls = new int[1];
+
+        ClassifiedObservable.OnPropertChangedCallback callback = () -> calls[0]++;
+
+        NotificationScheduler scheduler = new NotificationScheduler(() -> 0L, 10, TimeUnit.MILLISECONDS, 8);
+
+        foo.add(FooClassifiers.URL, callback, NotificationPolicy.throttle(100, TimeUnit.MILLISECONDS, scheduler));
+        foo.add(FooClassifiers.NAME, callback, NotificationPolicy.throttle(100, TimeUnit.MILLISECONDS, scheduler));
+
+        foo.beginBatch();
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+        foo.endBatch();
+
+        assertEquals("Throttled callback was not called exactly once", 1, calls[0]);
+    }
+
+    @Test
+    public void batch_Nested_DeliveredWhenOutermostEnds() {
+        foo.add(FooClassifiers.URL, () -> firstCallbackCalled = true);
+
+        foo.beginBatch();
+        foo.beginBatch();
+        foo.setUrl("bar");
+        foo.endBatch();
+
+        assertFalse("Callback was called when the inner batch ended", firstCallbackCalled);
+
+        foo.endBatch();
+
+        assertTrue("Callback was not called when the outermost batch ended", firstCallbackCalled);
+    }
+
+    @Test
+    public void batch_AllNotified_EveryCallbackCalledOnce() {
+        int[] calls = new int[3];
+
+        foo.add(FooClassifiers._ALL, () -> calls[0]++);
+        foo.add(FooClassifiers.URL, () -> calls[1]++);
+        foo.add(FooClassifiers.NAME, () -> calls[2]++);
+
+        foo.beginBatch();
+        foo.setUrl("bar");
+        foo.notifyPropertyChanged(FooClassifiers._ALL);
+        foo.setUrl("baz");
+        foo.endBatch();
+
+        assertEquals("_ALL callback was not called exactly once", 1, calls[0]);
+        assertEquals("URL callback was not called exactly once", 1, calls[1]);
+        assertEquals("NAME callback was not called exactly once", 1, calls[2]);
+    }
+
+    @Test
+    public void batch_UnnotifiedClassifier_CallbackNotCalled() {
+        foo.add(FooClassifiers._ALL, () -> firstCallbackCalled = true);
+        foo.add(FooClassifiers.NAME, () -> secondCallbackCalled = true);
+
+        foo.beginBatch();
+        foo.setUrl("bar");
+        foo.endBatch();
+
+        assertFalse("_ALL callback was called", firstCallbackCalled);
+        assertFalse("NAME callback was called", secondCallbackCalled);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void endBatch_NoBatchOpen() {
+        foo.endBatch();
+    }
+
+    @Test
+    public void setExecutor_NotificationsDeliveredOnExecutor() {
+        List<Runnable> tasks = new ArrayList<>();
+
+        foo.setExecutor(tasks::add);
+        foo.add(FooClassifiers.URL, () -> firstCallbackCalled = true);
+
+        foo.setUrl("bar");
+
+        assertFalse("Callback was called on the notifying thread", firstCallbackCalled);
+
+        assertEquals("Drain was not scheduled", 1, tasks.size());
+
+        tasks.get(0).run();
+
+        assertTrue("Callback was not called", firstCallbackCalled);
+    }
+
+    @Test
+    public void setExecutor_PendingDuplicatesCollapsed_OrderPreserved() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<FooClassifiers> delivered = new ArrayList<>();
+
+        foo.setExecutor(tasks::add);
+        foo.add(FooClassifiers.URL, () -> delivered.add(FooClassifiers.URL));
+        foo.add(FooClassifiers.NAME, () -> delivered.add(FooClassifiers.NAME));
+
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("More than one drain was scheduled", 1, tasks.size());
+
+        tasks.get(0).run();
+
+        assertEquals("Notifications were not collapsed in order", Arrays.asList(FooClassifiers.NAME, FooClassifiers.URL), delivered);
+    }
+
+    @Test
+    public void setExecutor_NullExecutor_NotificationsDeliveredInline() {
+        foo.setExecutor(runnable -> {
+            //never run
+        });
+        foo.setExecutor(null);
+        foo.add(FooClassifiers.URL, () -> firstCallbackCalled = true);
+
+        foo.setUrl("bar");
+
+        assertTrue("Callback was not called", firstCallbackCalled);
+    }
+
+    @Test
+    public void isDirty_NoCallbackAdded_PropertyChanged() {
+        foo.setUrl("bar");
+
+        assertTrue("URL was not marked dirty", foo.isDirty(FooClassifiers.URL));
+
+        assertFalse("NAME was marked dirty", foo.isDirty(FooClassifiers.NAME));
+
+        assertEquals("Dirty mask is wrong", 1L << FooClassifiers.URL.ordinal(), foo.dirtyMask());
+    }
+
+    @Test
+    public void isDirty_AllPropertiesChanged() {
+        foo.notifyPropertyChanged(FooClassifiers._ALL);
+
+        assertTrue("URL was not marked dirty", foo.isDirty(FooClassifiers.URL));
+        assertTrue("NAME was not marked dirty", foo.isDirty(FooClassifiers.NAME));
+    }
+
+    @Test
+    public void drainChanges_MaskReturnedAndCleared() {
+        foo.setUrl("bar");
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        long mask = foo.drainChanges();
+
+        assertEquals("Drained mask is wrong", 1L << FooClassifiers.URL.ordinal() | 1L << FooClassifiers.NAME.ordinal(), mask);
+
+        assertEquals("Mask was not cleared", 0L, foo.dirtyMask());
+
+        assertFalse("URL is still dirty", foo.isDirty(FooClassifiers.URL));
+    }
+
+    @Test
+    public void drainChanges_MoreThan64Classifiers() {
+        Wide wide = new Wide();
+
+        wide.notifyPropertyChanged(WideClassifiers.P69);
+        wide.notifyPropertyChanged(WideClassifiers.P1);
+
+        assertTrue("P69 was not marked dirty", wide.isDirty(WideClassifiers.P69));
+        assertFalse("P68 was marked dirty", wide.isDirty(WideClassifiers.P68));
+
+        long[] words = wide.drainChanges(new long[2]);
+
+        assertEquals("First word is wrong", 1L << WideClassifiers.P1.ordinal(), words[0]);
+        assertEquals("Second word is wrong", 1L << (WideClassifiers.P69.ordinal() - 64), words[1]);
+
+        assertFalse("P69 is still dirty", wide.isDirty(WideClassifiers.P69));
+    }
+
+    @Test
+    public void addWeak_CallbackCalledWhileReachable() {
+        ClassifiedObservable.OnPropertChangedCallback callback = () -> firstCallbackCalled = true;
+
+        foo.addWeak(FooClassifiers.URL, callback);
+
+        foo.setUrl("bar");
+
+        assertTrue("Callback was not called", firstCallbackCalled);
+
+        foo.remove(FooClassifiers.URL, callback);
+
+        assertNull("Callback was not removed", foo.callbacks);
+    }
+
+    @Test
+    public void addWeak_CollectedCallbackReleased() throws InterruptedException {
+        Listener listener = new Listener();
+
+        WeakReference<Listener> probe = new WeakReference<>(listener);
+
+        foo.addWeak(FooClassifiers.URL, listener);
+
+        listener = null;
+
+        for (int i = 0; i < 50 && probe.get() != null; ++i) {
+            System.gc();
+
+            Thread.sleep(10);
+        }
+
+        assertNull("Listener was kept alive by its registration", probe.get());
+
+        foo.setUrl("bar");
+
+        assertNull("Registration of the collected listener was not purged", foo.callbacks);
+    }
+
+    private static class Listener implements ClassifiedObservable.OnPropertChangedCallback {
+        private final byte[] payload = new byte[1024 * 1024];
+
+        @Override
+        public void onPropertyChanged() {
+            payload[0]++;
+        }
+    }
+
+    @Test
+    public void notifyPropertyChanged_IntCallbackAdded_ValuesPassed() {
+        int[] values = new int[2];
+
+        ClassifiedObservable.OnIntPropertyChangedCallback callback = (oldValue, newValue) -> {
+            values[0] = oldValue;
+            values[1] = newValue;
+        };
+
+        foo.add(FooClassifiers.NAME, callback);
+
+        foo.notifyPropertyChanged(FooClassifiers.NAME, 1, 2);
+
+        assertEquals("Old value was not passed", 1, values[0]);
+        assertEquals("New value was not passed", 2, values[1]);
+    }
+
+    @Test
+    public void notifyPropertyChanged_TypedCallbacks_OnlyMatchingTypeReceivesValues() {
+        List<String> calls = new ArrayList<>();
+
+        ClassifiedObservable.OnLongPropertyChangedCallback longCallback = (oldValue, newValue) -> calls.add("long " + oldValue + " " + newValue);
+        ClassifiedObservable.OnDoublePropertyChangedCallback doubleCallback = (oldValue, newValue) -> calls.add("double");
+        ClassifiedObservable.OnBooleanPropertyChangedCallback booleanCallback = (oldValue, newValue) -> calls.add("boolean " + oldValue + " " + newValue);
+        ClassifiedObservable.OnObjectPropertyChangedCallback<String> objectCallback = (oldValue, newValue) -> calls.add("object " + oldValue + " " + newValue);
+
+        foo.add(FooClassifiers.NAME, longCallback);
+        foo.add(FooClassifiers.NAME, doubleCallback);
+        foo.add(FooClassifiers.NAME, booleanCallback);
+        foo.add(FooClassifiers.NAME, objectCallback);
+        foo.add(FooClassifiers.NAME, () -> calls.add("plain"));
+
+        foo.notifyPropertyChanged(FooClassifiers.NAME, 3L, 4L);
+        foo.notifyPropertyChanged(FooClassifiers.NAME, false, true);
+        foo.notifyPropertyChanged(FooClassifiers.NAME, "a", "b");
+
+        assertEquals("Values were not passed to the matching callbacks",
+                Arrays.asList("long 3 4", "plain", "boolean false true", "plain", "object a b", "plain"), calls);
+    }
+
+    @Test
+    public void notifyPropertyChanged_NegativeIntAndDoubleValues_PassedUnchanged() {
+        List<String> calls = new ArrayList<>();
+
+        ClassifiedObservable.OnIntPropertyChangedCallback intCallback = (oldValue, newValue) -> calls.add("int " + oldValue + " " + newValue);
+        ClassifiedObservable.OnDoublePropertyChangedCallback doubleCallback = (oldValue, newValue) -> calls.add("double " + oldValue + " " + newValue);
+
+        foo.add(FooClassifiers.NAME, intCallback);
+        foo.add(FooClassifiers.NAME, doubleCallback);
+
+        foo.notifyPropertyChanged(FooClassifiers.NAME, -1, Integer.MIN_VALUE);
+        foo.notifyPropertyChanged(FooClassifiers.NAME, -0.5, Double.NaN);
+
+        assertEquals("Values were not passed unchanged",
+                Arrays.asList("int -1 " + Integer.MIN_VALUE, "double -0.5 NaN"), calls);
+    }
+
+    @Test
+    public void notifyPropertyChanged_TypedCallbackAdded_UntypedNotificationIgnored() {
+        ClassifiedObservable.OnIntPropertyChangedCallback callback = (oldValue, newValue) -> firstCallbackCalled = true;
+
+        foo.add(FooClassifiers.NAME, callback);
+
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        assertFalse("Typed callback was called without values", firstCallbackCalled);
+    }
+
+    @Test
+    public void notifyPropertyChanged_TypedNotificationInBatch_ValuesPassedImmediately() {
+        int[] calls = new int[2];
+
+        ClassifiedObservable.OnIntPropertyChangedCallback callback = (oldValue, newValue) -> calls[0]++;
+
+        foo.add(FooClassifiers.NAME, callback);
+        foo.add(FooClassifiers.NAME, () -> calls[1]++);
+
+        foo.beginBatch();
+        foo.notifyPropertyChanged(FooClassifiers.NAME, 1, 2);
+        foo.notifyPropertyChanged(FooClassifiers.NAME, 2, 3);
+
+        assertEquals("Typed callback was not called on the notifying thread", 2, calls[0]);
+        assertEquals("Plain callback was not batched", 0, calls[1]);
+
+        foo.endBatch();
+
+        assertEquals("Plain callback was not called once", 1, calls[1]);
+
+        assertTrue("Property was not marked dirty", foo.isDirty(FooClassifiers.NAME));
+    }
+
+    @Test
+    public void addEnumSet_SingleNotification_ChangedBitPassed() {
+        List<Long> masks = new ArrayList<>();
+
+        foo.add(EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME), masks::add);
+
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        assertEquals("Mask of the changed classifier was not passed", Arrays.asList(1L << FooClassifiers.NAME.ordinal()), masks);
+    }
+
+    @Test
+    public void addEnumSet_UnrelatedClassifier_CallbackNotCalled() {
+        List<Long> masks = new ArrayList<>();
+
+        foo.add(EnumSet.of(FooClassifiers.NAME), masks::add);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertTrue("Callback was called for a classifier it was not added for", masks.isEmpty());
+    }
+
+    @Test
+    public void addEnumSet_Batch_CalledOnceWithChangedMask() {
+        List<Long> masks = new ArrayList<>();
+
+        foo.add(EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME), masks::add);
+
+        ClassifiedObservable.Batch batch = foo.batch();
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        batch.close();
+
+        assertEquals("Callback was not called once with both classifiers",
+                Arrays.asList(1L << FooClassifiers.URL.ordinal() | 1L << FooClassifiers.NAME.ordinal()), masks);
+    }
+
+    @Test
+    public void addEnumSet_AllNotified_FullMaskPassed() {
+        List<Long> masks = new ArrayList<>();
+
+        foo.add(EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME), masks::add);
+
+        foo.notifyPropertyChanged(FooClassifiers._ALL);
+
+        assertEquals("_ALL did not pass every classifier of the callback",
+                Arrays.asList(1L << FooClassifiers.URL.ordinal() | 1L << FooClassifiers.NAME.ordinal()), masks);
+    }
+
+    @Test
+    public void addEnumSet_Executor_CalledOncePerDrain() {
+        List<Runnable> tasks = new ArrayList<>();
+
+        List<Long> masks = new ArrayList<>();
+
+        foo.add(EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME), masks::add)
+                .setExecutor(tasks::add);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        assertTrue("Callback was called before the executor ran", masks.isEmpty());
+
+        tasks.get(0).run();
+
+        assertEquals("Callback was not called once for the drain",
+                Arrays.asList(1L << FooClassifiers.URL.ordinal() | 1L << FooClassifiers.NAME.ordinal()), masks);
+    }
+
+    @Test
+    public void addEnumSet_TypedNotification_CallbackCalled() {
+        List<Long> masks = new ArrayList<>();
+
+        foo.add(EnumSet.of(FooClassifiers.NAME), masks::add);
+
+        foo.notifyPropertyChanged(FooClassifiers.NAME, 1, 2);
+
+        assertEquals("Callback was not called for a typed notification", Arrays.asList(1L << FooClassifiers.NAME.ordinal()), masks);
+    }
+
+    @Test
+    public void removeMaskedCallback_CallbackNotCalled() {
+        List<Long> masks = new ArrayList<>();
+
+        ClassifiedObservable.OnClassifiersChangedCallback callback = masks::add;
+
+        foo.add(EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME), callback)
+                .remove(callback);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertTrue("Removed callback was called", masks.isEmpty());
+    }
+
+    @Test
+    public void clearClassifier_MaskedCallbackStopsListeningToIt() {
+        List<Long> masks = new ArrayList<>();
+
+        foo.add(EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME), masks::add)
+                .clear(FooClassifiers.URL);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        assertEquals("Cleared classifier was still delivered", Arrays.asList(1L << FooClassifiers.NAME.ordinal()), masks);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addEnumSet_OrdinalBeyondMask_Throws() {
+        new Wide().add(EnumSet.of(WideClassifiers.P70), changed -> {
+            //noop
+        });
+    }
+
+    @Test
+    public void version_IncreasesOnNotification() {
+        long url = foo.version(FooClassifiers.URL);
+        long name = foo.version(FooClassifiers.NAME);
+        long global = foo.version();
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.URL, 1, 2);
+
+        assertEquals("URL version did not increase per notification", url + 2, foo.version(FooClassifiers.URL));
+        assertEquals("NAME version changed without a notification", name, foo.version(FooClassifiers.NAME));
+        assertEquals("Global version did not increase per notification", global + 2, foo.version());
+    }
+
+    @Test
+    public void version_AllNotified_EveryVersionIncreases() {
+        long url = foo.version(FooClassifiers.URL);
+        long name = foo.version(FooClassifiers.NAME);
+
+        foo.notifyPropertyChanged(FooClassifiers._ALL);
+
+        assertEquals("URL version did not increase on _ALL", url + 1, foo.version(FooClassifiers.URL));
+        assertEquals("NAME version did not increase on _ALL", name + 1, foo.version(FooClassifiers.NAME));
+        assertEquals("_ALL version did not increase", 1L, foo.version(FooClassifiers._ALL));
+    }
+
+    @Test
+    public void version_Batch_CountedWhenNotified() {
+        long url = foo.version(FooClassifiers.URL);
+
+        foo.beginBatch();
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("Batched notification was not counted", url + 1, foo.version(FooClassifiers.URL));
+
+        foo.endBatch();
+
+        assertEquals("Batch end counted the notification again", url + 1, foo.version(FooClassifiers.URL));
+    }
+
+    @Test
+    public void version_OnlyGlobalVersionRead_IncreasesOnNotification() {
+        long global = foo.version();
+
+        foo.setUrl("bar");
+        foo.notifyPropertyChanged(FooClassifiers.NAME, 1, 2);
+
+        assertEquals("Global version did not increase when only it was read", global + 2, foo.version());
+    }
+
+    @Test
+    public void version_ConcurrentNotifications_NoneLost() throws InterruptedException {
+        foo.version(FooClassifiers.NAME);
+
+        Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; ++j) {
+                    foo.notifyPropertyChanged(FooClassifiers.NAME);
+                }
+            });
+
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals("Concurrent notifications were lost", 40000L, foo.version(FooClassifiers.NAME));
+        assertEquals("Concurrent notifications were lost from the global version", 40000L, foo.version());
+    }
+
+    @Test
+    public void setTrampolined_NestedNotificationDeliveredAfterCurrent() {
+        List<String> calls = new ArrayList<>();
+
+        foo.setTrampolined(true);
+
+        foo.add(FooClassifiers.URL, () -> {
+            calls.add("url 1");
+
+            foo.notifyPropertyChanged(FooClassifiers.NAME);
+        });
+        foo.add(FooClassifiers.URL, () -> calls.add("url 2"));
+        foo.add(FooClassifiers.NAME, () -> calls.add("name"));
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("Nested notification was not deferred", Arrays.asList("url 1", "url 2", "name"), calls);
+    }
+
+    @Test
+    public void setTrampolined_PendingDuplicatesCoalesced() {
+        List<String> calls = new ArrayList<>();
+
+        foo.setTrampolined(true);
+
+        foo.add(FooClassifiers.URL, () -> {
+            foo.notifyPropertyChanged(FooClassifiers.NAME);
+            foo.notifyPropertyChanged(FooClassifiers.NAME);
+        });
+        foo.add(FooClassifiers.NAME, () -> calls.add("name"));
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("Pending duplicate was delivered twice", Arrays.asList("name"), calls);
+    }
+
+    @Test
+    public void setTrampolined_LongCascade_StackDoesNotGrow() {
+        Wide wide = new Wide();
+
+        wide.setTrampolined(true);
+
+        WideClassifiers[] classifiers = WideClassifiers.values();
+
+        int[] depths = new int[classifiers.length];
+
+        for (int i = 1; i < classifiers.length; ++i) {
+            int index = i;
+
+            wide.add(classifiers[i], () -> {
+                depths[index] = Thread.currentThread().getStackTrace().length;
+
+                if (index + 1 < classifiers.length) {
+                    wide.notifyPropertyChanged(classifiers[index + 1]);
+                }
+            });
+        }
+
+        wide.notifyPropertyChanged(WideClassifiers.P1);
+
+        assertEquals("Cascade did not reach the last property", depths[1], depths[classifiers.length - 1]);
+    }
+
+    @Test
+    public void setTrampolined_RunawayCascade_Throws() {
+        int[] calls = new int[1];
+
+        foo.setTrampolined(true, 10);
+
+        foo.add(FooClassifiers.URL, () -> {
+            ++calls[0];
+
+            foo.notifyPropertyChanged(FooClassifiers.NAME);
+        });
+        foo.add(FooClassifiers.NAME, () -> foo.notifyPropertyChanged(FooClassifiers.URL));
+
+        try {
+            foo.notifyPropertyChanged(FooClassifiers.URL);
+
+            assertTrue("Runaway cascade was not stopped", false);
+
+        } catch (IllegalStateException excpt) {
+            assertEquals("Cascade was not stopped at the limit", 5, calls[0]);
+        }
+
+        calls[0] = 0;
+
+        foo.clear(FooClassifiers.NAME);
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("Pending notifications of the runaway cascade were not dropped", 1, calls[0]);
+    }
+
+    @Test
+    public void setTrampolined_Disabled_CallbacksCalledDirectly() {
+        List<String> calls = new ArrayList<>();
+
+        foo.setTrampolined(true).setTrampolined(false);
+
+        foo.add(FooClassifiers.URL, () -> {
+            calls.add("url 1");
+
+            foo.notifyPropertyChanged(FooClassifiers.NAME);
+        });
+        foo.add(FooClassifiers.URL, () -> calls.add("url 2"));
+        foo.add(FooClassifiers.NAME, () -> calls.add("name"));
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("Nested notification was not delivered directly", Arrays.asList("url 1", "name", "url 2"), calls);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setTrampolined_NonPositiveLimit_Throws() {
+        foo.setTrampolined(true, 0);
+    }
+
+    private static class Wide extends ClassifiedObservable<WideClassifiers> {
+    }
+
+    private enum WideClassifiers {
+        _ALL,
+        P1, P2, P3, P4, P5, P6, P7, P8, P9, P10, P11, P12, P13, P14, P15, P16, P17, P18, P19, P20,
+        P21, P22, P23, P24, P25, P26, P27, P28, P29, P30, P31, P32, P33, P34, P35, P36, P37, P38, P39, P40,
+        P41, P42, P43, P44, P45, P46, P47, P48, P49, P50, P51, P52, P53, P54, P55, P56, P57, P58, P59, P60,
+        P61, P62, P63, P64, P65, P66, P67, P68, P69, P70
+    }
 }
@@ -0,0 +1,146 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable;
+
+import com.appolition.classifiable.observables.ClassifiedObservable;
+import com.appolition.classifiable.observables.ClassifierDependencies;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ClassifierDependenciesTests {
+    private static class Person extends ClassifiedObservable<PersonClassifiers> {
+        private static final ClassifierDependencies<PersonClassifiers> DEPENDENCIES = ClassifierDependencies.builder(PersonClassifiers.class)
+                .add(PersonClassifiers.GREETING, PersonClassifiers.FULL_NAME)
+                .add(PersonClassifiers.FULL_NAME, PersonClassifiers.FIRST_NAME, PersonClassifiers.LAST_NAME)
+                .build();
+
+        Person() {
+            setDependencies(DEPENDENCIES);
+        }
+    }
+
+    private enum PersonClassifiers {
+        _ALL,
+
+        GREETING,
+
+        FULL_NAME,
+
+        FIRST_NAME,
+
+        LAST_NAME
+    }
+
+    private Person person;
+
+    private List<PersonClassifiers> notified;
+
+    @Before
+    public void setup() {
+        person = new Person();
+
+        notified = new ArrayList<>();
+
+        for (PersonClassifiers classifier : PersonClassifiers.values()) {
+            person.add(classifier, () -> notified.add(classifier));
+        }
+    }
+
+    @Test
+    public void notifyPropertyChanged_DependentsNotifiedInTopologicalOrder() {
+        person.notifyPropertyChanged(PersonClassifiers.FIRST_NAME);
+
+        assertEquals("Dependents were not notified in topological order",
+                Arrays.asList(PersonClassifiers.FIRST_NAME, PersonClassifiers.FULL_NAME, PersonClassifiers.GREETING), notified);
+
+        assertTrue("Dependent was not marked dirty", person.isDirty(PersonClassifiers.GREETING));
+    }
+
+    @Test
+    public void notifyPropertyChanged_Batch_DependentsNotifiedOncePerWave() {
+        person.beginBatch();
+        person.notifyPropertyChanged(PersonClassifiers.FIRST_NAME);
+        person.notifyPropertyChanged(PersonClassifiers.LAST_NAME);
+        person.endBatch();
+
+        assertEquals("Dependents were not notified once in topological order",
+                Arrays.asList(PersonClassifiers.FIRST_NAME, PersonClassifiers.LAST_NAME, PersonClassifiers.FULL_NAME, PersonClassifiers.GREETING), notified);
+    }
+
+    @Test
+    public void notifyPropertyChanged_TypedNotification_DependentsNotified() {
+        person.notifyPropertyChanged(PersonClassifiers.LAST_NAME, "Smith", "Jones");
+
+        assertEquals("Dependents were not notified",
+                Arrays.asList(PersonClassifiers.LAST_NAME, PersonClassifiers.FULL_NAME, PersonClassifiers.GREETING), notified);
+    }
+
+    @Test
+    public void notifyPropertyChanged_Dependent_BasesNotNotified() {
+        person.notifyPropertyChanged(PersonClassifiers.FULL_NAME);
+
+        assertEquals("Bases were notified", Arrays.asList(PersonClassifiers.FULL_NAME, PersonClassifiers.GREETING), notified);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void build_CycleRejected() {
+        ClassifierDependencies.builder(PersonClassifiers.class)
+                .add(PersonClassifiers.FULL_NAME, PersonClassifiers.FIRST_NAME)
+                .add(PersonClassifiers.GREETING, PersonClassifiers.FULL_NAME)
+                .add(PersonClassifiers.FIRST_NAME, PersonClassifiers.GREETING)
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_SelfDependencyRejected() {
+        ClassifierDependencies.builder(PersonClassifiers.class)
+                .add(PersonClassifiers.FULL_NAME, PersonClassifiers.FULL_NAME);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_AllRejected() {
+        ClassifierDependencies.builder(PersonClassifiers.class)
+                .add(PersonClassifiers.FULL_NAME, PersonClassifiers._ALL);
+    }
+
+    @Test
+    public void notifyPropertyChanged_MaskedCallback_CalledOnceWithDerivedClassifiers() {
+        List<Long> masks = new ArrayList<>();
+
+        person.add(EnumSet.of(PersonClassifiers.GREETING, PersonClassifiers.FULL_NAME, PersonClassifiers.FIRST_NAME), masks::add);
+
+        person.notifyPropertyChanged(PersonClassifiers.FIRST_NAME);
+
+        assertEquals("Masked callback was not called once for the property and its dependents",
+                Arrays.asList(1L << PersonClassifiers.GREETING.ordinal() | 1L << PersonClassifiers.FULL_NAME.ordinal() | 1L << PersonClassifiers.FIRST_NAME.ordinal()),
+                masks);
+    }
+}
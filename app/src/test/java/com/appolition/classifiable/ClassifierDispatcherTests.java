@@ -0,0 +1,241 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable;
+
+import com.appolition.classifiable.observables.ClassifiedObservable;
+import com.appolition.classifiable.observables.ClassifiedObservable.OnPropertChangedCallback;
+import com.appolition.classifiable.observables.ClassifierDispatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ClassifierDispatcherTests {
+    public enum ShapeClassifiers {
+        _ALL,
+
+        WIDTH,
+
+        HEIGHT
+    }
+
+    private enum PlainClassifiers {
+        _ALL,
+
+        WIDTH,
+
+        HEIGHT
+    }
+
+    /**
+     * Written the way the processor generates it
+     */
+    public static final class ShapeDispatcher extends ClassifierDispatcher<ShapeClassifiers> implements Cloneable {
+        private OnPropertChangedCallback[] allCallbacks;
+
+        private OnPropertChangedCallback[] widthCallbacks;
+
+        private OnPropertChangedCallback[] heightCallbacks;
+
+        public ShapeDispatcher() {
+        }
+
+        @Override
+        protected int slots() {
+            return 3;
+        }
+
+        @Override
+        protected OnPropertChangedCallback[] callbacks(int ordinal) {
+            switch (ordinal) {
+                case 0:
+                    return allCallbacks;
+                case 1:
+                    return widthCallbacks;
+                case 2:
+                    return heightCallbacks;
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        protected ShapeDispatcher withCallbacks(int ordinal, OnPropertChangedCallback[] callbacks) {
+            ShapeDispatcher copy = copy();
+            switch (ordinal) {
+                case 0:
+                    copy.allCallbacks = callbacks;
+                    break;
+                case 1:
+                    copy.widthCallbacks = callbacks;
+                    break;
+                case 2:
+                    copy.heightCallbacks = callbacks;
+                    break;
+                default:
+                    throw new IllegalArgumentException("No classifier with ordinal " + ordinal);
+            }
+            return copy;
+        }
+
+        @Override
+        protected void dispatch(int ordinal) {
+            switch (ordinal) {
+                case 0:
+                    invokeAllCallbacks();
+                    invokeWidthCallbacks();
+                    invokeHeightCallbacks();
+                    break;
+                case 1:
+                    invokeWidthCallbacks();
+                    break;
+                case 2:
+                    invokeHeightCallbacks();
+                    break;
+            }
+        }
+
+        private ShapeDispatcher copy() {
+            try {
+                return (ShapeDispatcher) clone();
+            } catch (CloneNotSupportedException excpt) {
+                throw new AssertionError(excpt);
+            }
+        }
+
+        private void invokeAllCallbacks() {
+            if (allCallbacks == null) {
+                return;
+            }
+            for (OnPropertChangedCallback callback : allCallbacks) {
+                if (callback != null) {
+                    callback.onPropertyChanged();
+                }
+            }
+        }
+
+        private void invokeWidthCallbacks() {
+            if (widthCallbacks == null) {
+                return;
+            }
+            for (OnPropertChangedCallback callback : widthCallbacks) {
+                if (callback != null) {
+                    callback.onPropertyChanged();
+                }
+            }
+        }
+
+        private void invokeHeightCallbacks() {
+            if (heightCallbacks == null) {
+                return;
+            }
+            for (OnPropertChangedCallback callback : heightCallbacks) {
+                if (callback != null) {
+                    callback.onPropertyChanged();
+                }
+            }
+        }
+    }
+
+    private ClassifiedObservable<ShapeClassifiers> shape;
+
+    private List<String> notified;
+
+    @Before
+    public void setup() {
+        shape = new ClassifiedObservable<>();
+
+        notified = new ArrayList<>();
+    }
+
+    private OnPropertChangedCallback record(String name) {
+        return () -> notified.add(name);
+    }
+
+    @Test
+    public void add_BeyondSmallTier_DispatcherUsed() {
+        shape.add(ShapeClassifiers.WIDTH, record("w1"));
+        shape.add(ShapeClassifiers.HEIGHT, record("h1"));
+        shape.add(ShapeClassifiers.WIDTH, record("w2"));
+        shape.add(ShapeClassifiers.HEIGHT, record("h2"));
+
+        assertFalse("Dispatcher was used for the small tier", shape.callbacks instanceof ShapeDispatcher);
+
+        shape.add(ShapeClassifiers._ALL, record("a1"));
+
+        assertTrue("Dispatcher was not picked up", shape.callbacks instanceof ShapeDispatcher);
+
+        shape.notifyPropertyChanged(ShapeClassifiers.HEIGHT);
+
+        assertEquals("Wrong callbacks were called", Arrays.asList("h1", "h2"), notified);
+
+        notified.clear();
+
+        shape.notifyPropertyChanged(ShapeClassifiers._ALL);
+
+        assertEquals("Callbacks were not called in ordinal order", Arrays.asList("a1", "w1", "w2", "h1", "h2"), notified);
+
+        assertEquals("Wrong callback count", 2, shape.getCallbackCount(ShapeClassifiers.WIDTH));
+    }
+
+    @Test
+    public void remove_ToSmallTier_DispatcherReleased() {
+        OnPropertChangedCallback removed = record("w3");
+
+        shape.add(ShapeClassifiers.WIDTH, record("w1"));
+        shape.add(ShapeClassifiers.WIDTH, record("w2"));
+        shape.add(ShapeClassifiers.WIDTH, removed);
+        shape.add(ShapeClassifiers.HEIGHT, record("h1"));
+        shape.add(ShapeClassifiers.HEIGHT, record("h2"));
+
+        shape.remove(ShapeClassifiers.WIDTH, removed);
+
+        assertFalse("Dispatcher was kept for the small tier", shape.callbacks instanceof ShapeDispatcher);
+
+        shape.notifyPropertyChanged(ShapeClassifiers._ALL);
+
+        assertEquals("Registrations were lost moving down the tiers", Arrays.asList("w1", "w2", "h1", "h2"), notified);
+    }
+
+    @Test
+    public void add_NoDispatcher_TableUsed() {
+        ClassifiedObservable<PlainClassifiers> plain = new ClassifiedObservable<>();
+
+        for (int i = 0; i < 5; ++i) {
+            plain.add(PlainClassifiers.WIDTH, record("w" + i));
+        }
+
+        assertTrue("Table was not used without a dispatcher", plain.callbacks instanceof OnPropertChangedCallback[][]);
+
+        plain.notifyPropertyChanged(PlainClassifiers.WIDTH);
+
+        assertEquals("Callbacks were not called", 5, notified.size());
+    }
+}
@@ -0,0 +1,205 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable;
+
+import com.appolition.classifiable.observables.ClassifiedObservable;
+import com.appolition.classifiable.observables.ClassifierPublisher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ClassifierPublisherTests {
+    private static class Foo extends ClassifiedObservable<FooClassifiers> {
+    }
+
+    private enum FooClassifiers {
+        _ALL,
+
+        URL,
+
+        NAME,
+
+        AGE
+    }
+
+    private static class RecordingSubscriber implements Subscriber<FooClassifiers> {
+        private final List<FooClassifiers> received = new ArrayList<>();
+
+        private final List<Throwable> errors = new ArrayList<>();
+
+        private Subscription subscription;
+
+        private long requestPerSignal;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(FooClassifiers classifier) {
+            received.add(classifier);
+
+            if (requestPerSignal > 0) {
+                subscription.request(requestPerSignal);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            errors.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private Foo foo;
+
+    private RecordingSubscriber subscriber;
+
+    @Before
+    public void setup() {
+        foo = new Foo();
+
+        subscriber = new RecordingSubscriber();
+    }
+
+    @Test
+    public void subscribe_NotRequesting_NothingEmitted() {
+        ClassifierPublisher.of(foo, FooClassifiers.URL).subscribe(subscriber);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertTrue("Signal was emitted without a request", subscriber.received.isEmpty());
+    }
+
+    @Test
+    public void request_ChangesWhileNotRequesting_Collapsed() {
+        ClassifierPublisher.of(foo, FooClassifiers.URL).subscribe(subscriber);
+
+        for (int i = 0; i < 1000; ++i) {
+            foo.notifyPropertyChanged(FooClassifiers.URL);
+        }
+
+        subscriber.subscription.request(10);
+
+        assertEquals("Pending changes were not collapsed into one signal", Arrays.asList(FooClassifiers.URL), subscriber.received);
+    }
+
+    @Test
+    public void request_HonorsDemand() {
+        ClassifierPublisher.of(foo, EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME, FooClassifiers.AGE)).subscribe(subscriber);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+        foo.notifyPropertyChanged(FooClassifiers.AGE);
+
+        subscriber.subscription.request(2);
+
+        assertEquals("More signals were emitted than requested", 2, subscriber.received.size());
+
+        subscriber.subscription.request(1);
+
+        assertEquals("Remaining pending signal was not emitted", EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME, FooClassifiers.AGE), EnumSet.copyOf(subscriber.received));
+    }
+
+    @Test
+    public void request_Outstanding_EmittedOnChange() {
+        ClassifierPublisher.of(foo, FooClassifiers.NAME).subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("Each requested change was not emitted", Arrays.asList(FooClassifiers.NAME, FooClassifiers.NAME), subscriber.received);
+    }
+
+    @Test
+    public void request_FromOnNext_EmitsWithoutRecursion() {
+        ClassifierPublisher.of(foo, EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME)).subscribe(subscriber);
+
+        subscriber.requestPerSignal = 1;
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        subscriber.subscription.request(1);
+
+        assertEquals("Signals requested from onNext were not emitted", Arrays.asList(FooClassifiers.URL, FooClassifiers.NAME), subscriber.received);
+    }
+
+    @Test
+    public void notifyPropertyChanged_All_MarksEveryPublishedClassifier() {
+        ClassifierPublisher.of(foo, EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME)).subscribe(subscriber);
+
+        foo.notifyPropertyChanged(FooClassifiers._ALL);
+
+        subscriber.subscription.request(5);
+
+        assertEquals("_ALL did not mark every published classifier", Arrays.asList(FooClassifiers.URL, FooClassifiers.NAME), subscriber.received);
+    }
+
+    @Test
+    public void request_NonPositive_SignalsErrorAndUnregisters() {
+        ClassifierPublisher.of(foo, FooClassifiers.URL).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertEquals("Invalid request did not signal an error", 1, subscriber.errors.size());
+        assertTrue("Invalid request signaled the wrong error", subscriber.errors.get(0) instanceof IllegalArgumentException);
+        assertEquals("Callback was not removed after the error", 0, foo.getCallbackCount(FooClassifiers.URL));
+    }
+
+    @Test
+    public void cancel_Unregisters() {
+        ClassifierPublisher.of(foo, EnumSet.of(FooClassifiers.URL, FooClassifiers.NAME)).subscribe(subscriber);
+
+        subscriber.subscription.request(5);
+        subscriber.subscription.cancel();
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertTrue("Signal was emitted after cancel", subscriber.received.isEmpty());
+        assertEquals("URL callback was not removed", 0, foo.getCallbackCount(FooClassifiers.URL));
+        assertEquals("NAME callback was not removed", 0, foo.getCallbackCount(FooClassifiers.NAME));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void subscribe_NullSubscriber_Throws() {
+        ClassifierPublisher.of(foo, FooClassifiers.URL).subscribe(null);
+    }
+}
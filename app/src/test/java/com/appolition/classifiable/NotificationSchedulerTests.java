@@ -0,0 +1,221 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable;
+
+import com.appolition.classifiable.observables.ClassifiedObservable;
+import com.appolition.classifiable.observables.NotificationPolicy;
+import com.appolition.classifiable.observables.NotificationScheduler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class NotificationSchedulerTests {
+    private static class Foo extends ClassifiedObservable<FooClassifiers> {
+    }
+
+    private enum FooClassifiers {
+        _ALL,
+
+        PROGRESS
+    }
+
+    private long now;
+
+    private NotificationScheduler scheduler;
+
+    private Foo foo;
+
+    private int calls;
+
+    @Before
+    public void setup() {
+        now = 0;
+
+        scheduler = new NotificationScheduler(() -> now, 10, TimeUnit.MILLISECONDS, 8);
+
+        foo = new Foo();
+
+        calls = 0;
+    }
+
+    private void advanceMillis(long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+
+        scheduler.advance();
+    }
+
+    @Test
+    public void throttle_FirstChangeDeliveredImmediately() {
+        foo.add(FooClassifiers.PROGRESS, () -> calls++, NotificationPolicy.throttle(100, TimeUnit.MILLISECONDS, scheduler));
+
+        foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+
+        assertEquals("First change was not delivered", 1, calls);
+    }
+
+    @Test
+    public void throttle_ChangesInWindowCollapsedIntoTrailingCall() {
+        foo.add(FooClassifiers.PROGRESS, () -> calls++, NotificationPolicy.throttle(100, TimeUnit.MILLISECONDS, scheduler));
+
+        foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+
+        for (int i = 0; i < 50; ++i) {
+            advanceMillis(1);
+
+            foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+        }
+
+        assertEquals("Changes in the window were delivered", 1, calls);
+
+        advanceMillis(60);
+
+        assertEquals("Last change of the window was not delivered", 2, calls);
+
+        advanceMillis(500);
+
+        assertEquals("Extra change was delivered", 2, calls);
+    }
+
+    @Test
+    public void debounce_DeliveredOnceChangesStop() {
+        foo.add(FooClassifiers.PROGRESS, () -> calls++, NotificationPolicy.debounce(50, TimeUnit.MILLISECONDS, scheduler));
+
+        for (int i = 0; i < 10; ++i) {
+            foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+
+            advanceMillis(20);
+        }
+
+        assertEquals("Change was delivered before changes stopped", 0, calls);
+
+        advanceMillis(60);
+
+        assertEquals("Change was not delivered once", 1, calls);
+    }
+
+    @Test
+    public void remove_PolicyCallbackRemovedByWrappedCallback() {
+        ClassifiedObservable.OnPropertChangedCallback callback = () -> calls++;
+
+        foo.add(FooClassifiers.PROGRESS, callback, NotificationPolicy.debounce(50, TimeUnit.MILLISECONDS, scheduler));
+        foo.remove(FooClassifiers.PROGRESS, callback);
+
+        assertNull("Callback was not removed", foo.callbacks);
+    }
+
+    @Test
+    public void advance_TaskBeyondOneTurnOfTheWheel() {
+        List<String> ran = new ArrayList<>();
+
+        foo.add(FooClassifiers.PROGRESS, () -> ran.add("debounced"), NotificationPolicy.debounce(200, TimeUnit.MILLISECONDS, scheduler));
+
+        foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+
+        advanceMillis(100);
+
+        assertEquals("Task ran after one turn of the wheel", 0, ran.size());
+
+        advanceMillis(100);
+
+        assertEquals("Task did not run when due", 1, ran.size());
+    }
+
+    @Test
+    public void advance_TaskThrows_OtherDueTasksStillRun() {
+        int[] failing = new int[1];
+
+        foo.add(FooClassifiers.PROGRESS, () -> {
+            failing[0]++;
+
+            throw new IllegalStateException("callback failed");
+        }, NotificationPolicy.debounce(50, TimeUnit.MILLISECONDS, scheduler));
+        foo.add(FooClassifiers.PROGRESS, () -> calls++, NotificationPolicy.debounce(50, TimeUnit.MILLISECONDS, scheduler));
+
+        foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+
+        IllegalStateException thrown = null;
+
+        try {
+            advanceMillis(60);
+
+        } catch (IllegalStateException excpt) {
+            thrown = excpt;
+        }
+
+        assertNotNull("Exception of the task was not rethrown", thrown);
+        assertEquals("Other due task did not run", 1, calls);
+
+        foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+
+        try {
+            advanceMillis(60);
+
+        } catch (IllegalStateException excpt) {
+            thrown = excpt;
+        }
+
+        assertEquals("Throwing callback was not scheduled again", 2, failing[0]);
+        assertEquals("Other callback was not scheduled again", 2, calls);
+    }
+
+    @Test
+    public void advance_TaskScheduledAfterIdleWheel_RunsWhenDue() {
+        now += TimeUnit.MILLISECONDS.toNanos(60_000);
+
+        foo.add(FooClassifiers.PROGRESS, () -> calls++, NotificationPolicy.debounce(50, TimeUnit.MILLISECONDS, scheduler));
+
+        foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+
+        advanceMillis(40);
+
+        assertEquals("Task ran before it was due", 0, calls);
+
+        advanceMillis(20);
+
+        assertEquals("Task did not run when due", 1, calls);
+    }
+
+    @Test
+    public void shared_TaskScheduledInIdleWheel_Runs() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+
+        foo.add(FooClassifiers.PROGRESS, latch::countDown, NotificationPolicy.debounce(20, TimeUnit.MILLISECONDS));
+
+        foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+
+        Thread.sleep(200);
+
+        foo.notifyPropertyChanged(FooClassifiers.PROGRESS);
+
+        assertTrue("Parked scheduler thread did not run the tasks", latch.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,230 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable;
+
+import com.appolition.classifiable.observables.ClassifiedObservable;
+import com.appolition.classifiable.observables.ClassifiedObservable.OnPropertChangedCallback;
+import com.appolition.classifiable.observables.RecordingDispatchMetrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class RecordingDispatchMetricsTests {
+    private static class Foo extends ClassifiedObservable<FooClassifiers> {
+    }
+
+    private enum FooClassifiers {
+        _ALL,
+
+        URL,
+
+        NAME
+    }
+
+    private static class FastCallback implements OnPropertChangedCallback {
+        @Override
+        public void onPropertyChanged() {
+        }
+    }
+
+    private static class SlowCallback implements OnPropertChangedCallback {
+        @Override
+        public void onPropertyChanged() {
+            try {
+                Thread.sleep(5);
+
+            } catch (InterruptedException excpt) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Foo foo;
+
+    private RecordingDispatchMetrics metrics;
+
+    private List<OnPropertChangedCallback> slowCallbacks;
+
+    @Before
+    public void setup() {
+        foo = new Foo();
+
+        slowCallbacks = new ArrayList<>();
+
+        metrics = new RecordingDispatchMetrics(1, TimeUnit.MILLISECONDS, (classifier, callback, nanos) -> slowCallbacks.add(callback));
+
+        ClassifiedObservable.setDispatchMetrics(metrics);
+    }
+
+    @After
+    public void teardown() {
+        ClassifiedObservable.setDispatchMetrics(null);
+    }
+
+    @Test
+    public void notifyPropertyChanged_CountsNotificationsAndFanOut() {
+        foo.add(FooClassifiers.URL, new FastCallback())
+                .add(FooClassifiers.URL, new FastCallback())
+                .add(FooClassifiers.NAME, new FastCallback());
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        assertEquals("URL notifications were not counted", 2L, metrics.getNotificationCount(FooClassifiers.URL));
+        assertEquals("URL fan-out was not recorded", 4L, metrics.getFanOut(FooClassifiers.URL));
+        assertEquals("URL max fan-out was not recorded", 2, metrics.getMaxFanOut(FooClassifiers.URL));
+        assertEquals("NAME notifications were not counted", 1L, metrics.getNotificationCount(FooClassifiers.NAME));
+    }
+
+    @Test
+    public void notifyPropertyChanged_NoCallbacks_CountsNotification() {
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        assertEquals("Notification without callbacks was not counted", 1L, metrics.getNotificationCount(FooClassifiers.NAME));
+        assertEquals("Fan-out without callbacks was not zero", 0L, metrics.getFanOut(FooClassifiers.NAME));
+    }
+
+    @Test
+    public void notifyPropertyChanged_All_CountsOnceWithTotalFanOut() {
+        foo.add(FooClassifiers.URL, new FastCallback())
+                .add(FooClassifiers.NAME, new FastCallback());
+
+        foo.notifyPropertyChanged(FooClassifiers._ALL);
+
+        assertEquals("_ALL notification was not counted once", 1L, metrics.getNotificationCount(FooClassifiers._ALL));
+        assertEquals("_ALL fan-out was not the total", 2L, metrics.getFanOut(FooClassifiers._ALL));
+        assertEquals("URL was counted for an _ALL notification", 0L, metrics.getNotificationCount(FooClassifiers.URL));
+    }
+
+    @Test
+    public void notifyPropertyChanged_RecordsLatencyHistogram() {
+        foo.add(FooClassifiers.URL, new FastCallback());
+
+        for (int i = 0; i < 10; ++i) {
+            foo.notifyPropertyChanged(FooClassifiers.URL);
+        }
+
+        long total = 0;
+
+        for (long count : metrics.getLatencyHistogram(FastCallback.class)) {
+            total += count;
+        }
+
+        assertEquals("Histogram did not record every call", 10L, total);
+        assertEquals("Histogram recorded an unknown callback class", 0L, metrics.getLatencyHistogram(SlowCallback.class)[0]);
+    }
+
+    @Test
+    public void notifyPropertyChanged_SlowCallback_Reported() {
+        SlowCallback slow = new SlowCallback();
+
+        foo.add(FooClassifiers.URL, new FastCallback())
+                .add(FooClassifiers.URL, slow);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("Only the slow callback should be reported", 1, slowCallbacks.size());
+        assertSame("Slow callback was not reported", slow, slowCallbacks.get(0));
+    }
+
+    @Test
+    public void notifyPropertyChanged_WeakSlowCallback_ReportsAddedCallback() {
+        SlowCallback slow = new SlowCallback();
+
+        foo.addWeak(FooClassifiers.URL, slow);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertSame("Weak slow callback was not reported as the added callback", slow, slowCallbacks.get(0));
+        assertTrue("Weak callback latency was not recorded under its class", metrics.getLatencyHistogram(SlowCallback.class)[22] > 0);
+    }
+
+    @Test
+    public void endBatch_CountsEachNotifiedClassifier() {
+        OnPropertChangedCallback callback = new FastCallback();
+
+        foo.add(FooClassifiers.URL, callback)
+                .add(FooClassifiers.NAME, callback);
+
+        ClassifiedObservable.Batch batch = foo.batch();
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        batch.close();
+
+        assertEquals("Batched URL notifications were not coalesced", 1L, metrics.getNotificationCount(FooClassifiers.URL));
+        assertEquals("Batched NAME notification was not counted", 1L, metrics.getNotificationCount(FooClassifiers.NAME));
+        assertEquals("Callback shared by both classifiers was counted twice", 1L,
+                metrics.getFanOut(FooClassifiers.URL) + metrics.getFanOut(FooClassifiers.NAME));
+    }
+
+    @Test
+    public void setExecutor_CountsDeliveredNotifications() {
+        List<Runnable> tasks = new ArrayList<>();
+
+        foo.add(FooClassifiers.NAME, new FastCallback())
+                .setExecutor(tasks::add);
+
+        foo.notifyPropertyChanged(FooClassifiers.NAME);
+
+        assertEquals("Queued notification was counted before delivery", 0L, metrics.getNotificationCount(FooClassifiers.NAME));
+
+        tasks.get(0).run();
+
+        assertEquals("Delivered notification was not counted", 1L, metrics.getNotificationCount(FooClassifiers.NAME));
+    }
+
+    @Test
+    public void setDispatchMetrics_Null_StopsRecording() {
+        ClassifiedObservable.setDispatchMetrics(null);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL);
+
+        assertEquals("Notification was recorded while metrics were disabled", 0L, metrics.getNotificationCount(FooClassifiers.URL));
+    }
+
+    @Test
+    public void notifyPropertyChanged_TypedValues_CountsNotification() {
+        int[] received = new int[1];
+
+        foo.add(FooClassifiers.URL, (ClassifiedObservable.OnIntPropertyChangedCallback) (oldValue, newValue) -> received[0] = newValue);
+
+        foo.notifyPropertyChanged(FooClassifiers.URL, 1, 2);
+
+        assertEquals("Typed callback was not called", 2, received[0]);
+        assertEquals("Typed notification was not counted", 1L, metrics.getNotificationCount(FooClassifiers.URL));
+        assertEquals("Typed fan-out was not recorded", 1L, metrics.getFanOut(FooClassifiers.URL));
+    }
+}
@@ -24,9 +24,12 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Annotates methods for which to generate an enum
+ * Annotates methods and fields for which to generate an enum
+ *
+ * An annotated field must be a non-private, non-static and non-final field of a ClassifiedObservable, a companion
+ * class with a setter per field is generated, the setters only notify when the value changed
  */
-@Target({ElementType.METHOD})
+@Target({ElementType.METHOD, ElementType.FIELD})
 @Retention(RetentionPolicy.SOURCE)
 public @interface Classifiable {
 }
@@ -0,0 +1,69 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable_benchmark;
+
+/**
+ * Classifier enums of different sizes for the benchmarks
+ */
+final class BenchmarkClassifiers {
+    private BenchmarkClassifiers() {
+    }
+
+    /**
+     * Gets the classifiers of the enum with the specified number of constants
+     *
+     * @param count, the number of constants, one of 4, 16 or 64
+     *
+     * @return Enum<?>[], the classifiers
+     */
+    static Enum<?>[] of(int count) {
+        switch (count) {
+            case 4:
+                return Classifiers4.values();
+
+            case 16:
+                return Classifiers16.values();
+
+            case 64:
+                return Classifiers64.values();
+
+            default:
+                throw new IllegalArgumentException(String.format("No classifiers with %d constants", count));
+        }
+    }
+
+    enum Classifiers4 {
+        _ALL, P1, P2, P3
+    }
+
+    enum Classifiers16 {
+        _ALL, P1, P2, P3, P4, P5, P6, P7, P8, P9,
+        P10, P11, P12, P13, P14, P15
+    }
+
+    enum Classifiers64 {
+        _ALL, P1, P2, P3, P4, P5, P6, P7, P8, P9,
+        P10, P11, P12, P13, P14, P15, P16, P17, P18, P19,
+        P20, P21, P22, P23, P24, P25, P26, P27, P28, P29,
+        P30, P31, P32, P33, P34, P35, P36, P37, P38, P39,
+        P40, P41, P42, P43, P44, P45, P46, P47, P48, P49,
+        P50, P51, P52, P53, P54, P55, P56, P57, P58, P59,
+        P60, P61, P62, P63
+    }
+}
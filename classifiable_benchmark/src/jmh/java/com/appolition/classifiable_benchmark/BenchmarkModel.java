@@ -0,0 +1,74 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_benchmark;
+
+import com.appolition.classifiable.observables.ClassifiedObservable;
+import com.appolition.classifiable_annotation.Classifiable;
+
+/**
+ * A model whose classifiers, setters and dispatcher are generated by the Classifiable processor, shaped like
+ * BenchmarkClassifiers.Classifiers16 so the two can be compared
+ */
+public class BenchmarkModel extends ClassifiedObservable<BenchmarkModelClassifiers> {
+    @Classifiable
+    int p1;
+
+    @Classifiable
+    int p2;
+
+    @Classifiable
+    int p3;
+
+    @Classifiable
+    int p4;
+
+    @Classifiable
+    int p5;
+
+    @Classifiable
+    int p6;
+
+    @Classifiable
+    int p7;
+
+    @Classifiable
+    int p8;
+
+    @Classifiable
+    int p9;
+
+    @Classifiable
+    int p10;
+
+    @Classifiable
+    int p11;
+
+    @Classifiable
+    int p12;
+
+    @Classifiable
+    int p13;
+
+    @Classifiable
+    int p14;
+
+    @Classifiable
+    int p15;
+}
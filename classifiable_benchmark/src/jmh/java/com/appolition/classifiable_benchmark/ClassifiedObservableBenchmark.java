@@ -0,0 +1,217 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.appolition.classifiable_benchmark;
+
+import com.appolition.classifiable.observables.ClassifiedObservable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the hot paths of ClassifiedObservable
+ *
+ * Each benchmark has an uncontended variant on one thread and a contended variant on four threads sharing the
+ * same observable
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ClassifiedObservableBenchmark {
+    /**
+     * The number of classifiers of the observable, including _ALL
+     */
+    @Param({"4", "16", "64"})
+    public int classifiers;
+
+    /**
+     * The number of callbacks registered for each classifier
+     */
+    @Param({"0", "1", "4", "16"})
+    public int listeners;
+
+    /**
+     * The share of notifications that are _ALL notifications
+     */
+    @Param({"0", "0.1"})
+    public double allRatio;
+
+    /**
+     * The observable under test
+     */
+    private ClassifiedObservable observable;
+
+    /**
+     * The classifiers of the observable, indexed by ordinal
+     */
+    private Enum[] constants;
+
+    /**
+     * Every allEvery-th notification is a _ALL notification, 0 for none
+     */
+    private int allEvery;
+
+    /**
+     * The callback added and removed by the registration benchmarks
+     */
+    private final CountingCallback extra = new CountingCallback();
+
+    @Setup
+    public void setup() {
+        constants = BenchmarkClassifiers.of(classifiers);
+
+        allEvery = allRatio == 0 ? 0 : (int) Math.round(1 / allRatio);
+
+        observable = new ClassifiedObservable();
+
+        for (int ordinal = 1; ordinal < constants.length; ++ordinal) {
+            for (int i = 0; i < listeners; ++i) {
+                observable.add(constants[ordinal], new CountingCallback());
+            }
+        }
+    }
+
+    @Benchmark
+    public void notifyPropertyChanged_Uncontended(Cursor cursor) {
+        notifyNext(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void notifyPropertyChanged_Contended(Cursor cursor) {
+        notifyNext(cursor);
+    }
+
+    @Benchmark
+    public void addRemove_Uncontended(Cursor cursor) {
+        addRemoveNext(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addRemove_Contended(Cursor cursor) {
+        addRemoveNext(cursor);
+    }
+
+    /**
+     * Clears a classifier and restores its callbacks, so the measured cost includes re-adding them
+     */
+    @Benchmark
+    public void clearClassifier_Uncontended(Cursor cursor) {
+        clearNext(cursor);
+    }
+
+    /**
+     * Clears a classifier and restores its callbacks, so the measured cost includes re-adding them
+     */
+    @Benchmark
+    @Threads(4)
+    public void clearClassifier_Contended(Cursor cursor) {
+        clearNext(cursor);
+    }
+
+    /**
+     * Notifies the next classifier of the cursor, or _ALL according to the ratio
+     *
+     * @param cursor, the position of the calling thread
+     */
+    private void notifyNext(Cursor cursor) {
+        int index = ++cursor.index;
+
+        if (allEvery > 0 && index % allEvery == 0) {
+            observable.notifyPropertyChanged(constants[0]);
+
+        } else {
+            observable.notifyPropertyChanged(constants[1 + index % (constants.length - 1)]);
+        }
+    }
+
+    /**
+     * Adds and removes a callback for the next classifier of the cursor
+     *
+     * @param cursor, the position of the calling thread
+     */
+    private void addRemoveNext(Cursor cursor) {
+        Enum classifier = constants[1 + ++cursor.index % (constants.length - 1)];
+
+        observable.add(classifier, extra);
+        observable.remove(classifier, extra);
+    }
+
+    /**
+     * Clears the next classifier of the cursor and restores its callbacks
+     *
+     * @param cursor, the position of the calling thread
+     */
+    private void clearNext(Cursor cursor) {
+        Enum classifier = constants[1 + ++cursor.index % (constants.length - 1)];
+
+        observable.clear(classifier);
+
+        for (int i = 0; i < listeners; ++i) {
+            observable.add(classifier, cursor.callback);
+        }
+    }
+
+    /**
+     * The position of a benchmark thread in the classifiers
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        /**
+         * The number of operations performed by the thread
+         */
+        int index;
+
+        /**
+         * The callback restored by the thread
+         */
+        final CountingCallback callback = new CountingCallback();
+    }
+
+    /**
+     * A callback that does a minimal amount of work
+     */
+    static final class CountingCallback implements ClassifiedObservable.OnPropertChangedCallback {
+        /**
+         * The number of calls, updated without synchronization
+         */
+        long calls;
+
+        @Override
+        public void onPropertyChanged() {
+            ++calls;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_benchmark;
+
+import com.appolition.classifiable.observables.ClassifiedObservable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares notifying through the table of callback arrays with notifying through the generated dispatcher of
+ * BenchmarkModel, both with the same number of classifiers and enough callbacks to leave the small tier
+ *
+ * Like the callbacks of a real model the callbacks of different classifiers are of different types, which is what
+ * the call site per classifier of the dispatcher is for
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ClassifierDispatcherBenchmark {
+    /**
+     * How the registrations are held, in a table for classifiers without a dispatcher or in the generated dispatcher
+     */
+    @Param({"table", "dispatcher"})
+    public String registrations;
+
+    /**
+     * The number of callbacks registered for each classifier
+     */
+    @Param({"1", "4"})
+    public int listeners;
+
+    /**
+     * The observable under test
+     */
+    private ClassifiedObservable observable;
+
+    /**
+     * The classifiers of the observable, indexed by ordinal
+     */
+    private Enum[] constants;
+
+    /**
+     * The number of notifications made
+     */
+    private int index;
+
+    @Setup
+    public void setup() {
+        if ("table".equals(registrations)) {
+            constants = BenchmarkClassifiers.of(16);
+
+            observable = new ClassifiedObservable();
+
+        } else {
+            constants = BenchmarkModelClassifiers.values();
+
+            observable = new BenchmarkModel();
+        }
+
+        for (int ordinal = 1; ordinal < constants.length; ++ordinal) {
+            for (int i = 0; i < listeners; ++i) {
+                observable.add(constants[ordinal], callback(ordinal));
+            }
+        }
+    }
+
+    @Benchmark
+    public void notifyPropertyChanged() {
+        observable.notifyPropertyChanged(constants[1 + ++index % (constants.length - 1)]);
+    }
+
+    @Benchmark
+    public void notifyPropertyChanged_All() {
+        observable.notifyPropertyChanged(constants[0]);
+    }
+
+    /**
+     * Creates a callback of one of several types depending on the classifier
+     *
+     * @param ordinal, the ordinal of the classifier the callback is for
+     *
+     * @return ClassifiedObservable.OnPropertChangedCallback, the callback
+     */
+    private static ClassifiedObservable.OnPropertChangedCallback callback(int ordinal) {
+        switch (ordinal % 4) {
+            case 0:
+                return new ClassifiedObservableBenchmark.CountingCallback();
+
+            case 1:
+                return new SummingCallback();
+
+            case 2:
+                return new FlaggingCallback();
+
+            default:
+                return new TimestampingCallback();
+        }
+    }
+
+    /**
+     * A callback that adds up its calls
+     */
+    static final class SummingCallback implements ClassifiedObservable.OnPropertChangedCallback {
+        int sum;
+
+        @Override
+        public void onPropertyChanged() {
+            sum += 2;
+        }
+    }
+
+    /**
+     * A callback that flips a flag
+     */
+    static final class FlaggingCallback implements ClassifiedObservable.OnPropertChangedCallback {
+        boolean flag;
+
+        @Override
+        public void onPropertyChanged() {
+            flag = !flag;
+        }
+    }
+
+    /**
+     * A callback that records the time of its last call as counted by its calls
+     */
+    static final class TimestampingCallback implements ClassifiedObservable.OnPropertChangedCallback {
+        long last;
+
+        @Override
+        public void onPropertyChanged() {
+            last = last * 31 + 1;
+        }
+    }
+}
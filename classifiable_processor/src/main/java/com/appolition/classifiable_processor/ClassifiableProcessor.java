@@ -19,16 +19,23 @@
 package com.appolition.classifiable_processor;
 
 import com.appolition.classifiable_annotation.Classifiable;
+import com.appolition.classifiable_processor.generators.ClassifiersGenerator;
+import com.appolition.classifiable_processor.generators.CodecGenerator;
+import com.appolition.classifiable_processor.generators.DispatcherGenerator;
+import com.appolition.classifiable_processor.generators.Property;
+import com.appolition.classifiable_processor.generators.SettersGenerator;
 import com.appolition.classifiable_processor.writers.JavaFileWriter;
 import com.appolition.classifiable_processor.writers.ProcessingEnvironmentJavaFileWriter;
 import com.google.auto.service.AutoService;
 import com.google.common.annotations.VisibleForTesting;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.TypeSpec;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,22 +50,30 @@ import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
 
 /**
  * An annotation processor for generating enums to use as classifiers
+ *
+ * The processor is registered with Gradle as an isolating incremental processor, every generated type is derived
+ * from a single annotated class and its supertypes only, has that class as its single originating element, and is
+ * generated the same way whatever the order of the other classes in the round
  */
 @AutoService(Processor.class)
 @SupportedAnnotationTypes({"com.appolition.classifiable_annotation.Classifiable"})
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 public class ClassifiableProcessor extends AbstractProcessor {
     /**
-     * The suffix of the generated enum
+     * The class annotated fields must be declared in, the generated setters notify through it
      */
-    private static final String SUFFIX = "Classifiers";
+    private static final String OBSERVABLE = "com.appolition.classifiable.observables.ClassifiedObservable";
 
     /**
      * The ProcessingEnvironment, used the get the package name of an element
@@ -77,14 +92,50 @@ public class ClassifiableProcessor extends AbstractProcessor {
 
     private final JavaFileWriter javaFileWriter;
 
+    /**
+     * Receives the time spent in each phase, null if phases are not timed
+     */
+    private final PhaseListener phaseListener;
+
     public ClassifiableProcessor() {
-        this.javaFileWriter = new ProcessingEnvironmentJavaFileWriter();
+        this(new ProcessingEnvironmentJavaFileWriter());
     }
 
     public ClassifiableProcessor(JavaFileWriter javaFileWriter) {
+        this(javaFileWriter, null);
+    }
+
+    /**
+     * Constructs a processor that reports the time spent in each phase
+     *
+     * @param javaFileWriter, writes the generated types
+     * @param phaseListener, receives the time spent in each phase, null to not time phases
+     */
+    public ClassifiableProcessor(JavaFileWriter javaFileWriter, PhaseListener phaseListener) {
         this.javaFileWriter = javaFileWriter;
+        this.phaseListener = phaseListener;
     }
 
+    /**
+     * Generates the classifiers enums
+     */
+    private ClassifiersGenerator classifiersGenerator;
+
+    /**
+     * Generates the delta codecs
+     */
+    private CodecGenerator codecGenerator;
+
+    /**
+     * Generates the setters of annotated fields
+     */
+    private SettersGenerator settersGenerator;
+
+    /**
+     * Generates the dispatchers, null if ClassifierDispatcher is not on the classpath
+     */
+    private DispatcherGenerator dispatcherGenerator;
+
     /**
      * Initializes the processor with the processing environment
      *
@@ -98,6 +149,14 @@ public class ClassifiableProcessor extends AbstractProcessor {
 
         messager = processingEnvironment.getMessager();
         filer = processingEnvironment.getFiler();
+
+        classifiersGenerator = new ClassifiersGenerator();
+        codecGenerator = new CodecGenerator(processingEnvironment.getTypeUtils(), processingEnvironment.getElementUtils());
+        settersGenerator = new SettersGenerator();
+
+        if (processingEnvironment.getElementUtils().getTypeElement(DispatcherGenerator.DISPATCHER.toString()) != null) {
+            dispatcherGenerator = new DispatcherGenerator();
+        }
     }
 
     /**
@@ -113,15 +172,52 @@ public class ClassifiableProcessor extends AbstractProcessor {
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
         Collection<? extends Element> annotatedElements = roundEnvironment.getElementsAnnotatedWith(Classifiable.class);
 
-        if (!validateUsage(annotatedElements)) {
+        long start = startPhase();
+
+        boolean valid = validateUsage(annotatedElements);
+
+        endPhase(PhaseListener.Phase.VALIDATE_USAGE, start);
+
+        if (!valid) {
             return false;
         }
 
-        generateCode(divideClasses(annotatedElements));
+        start = startPhase();
+
+        Map<Pair, List<Element>> classes = divideClasses(annotatedElements);
+
+        endPhase(PhaseListener.Phase.DIVIDE_CLASSES, start);
+
+        start = startPhase();
+
+        generateCode(classes);
+
+        endPhase(PhaseListener.Phase.GENERATE_CODE, start);
 
         return true;
     }
 
+    /**
+     * Starts timing a phase
+     *
+     * @return long, the start of the phase in nanoseconds, 0 if phases are not timed
+     */
+    private long startPhase() {
+        return phaseListener == null ? 0L : System.nanoTime();
+    }
+
+    /**
+     * Reports the time spent in a phase if phases are timed
+     *
+     * @param phase, the completed phase
+     * @param start, the start of the phase as returned by startPhase()
+     */
+    private void endPhase(PhaseListener.Phase phase, long start) {
+        if (phaseListener != null) {
+            phaseListener.onPhase(phase, System.nanoTime() - start);
+        }
+    }
+
     /**
      * Ensures correct usage of the annotation
      *
@@ -139,6 +235,14 @@ public class ClassifiableProcessor extends AbstractProcessor {
 
             String methodName = element.getSimpleName().toString();
 
+            if (element.getKind() == ElementKind.FIELD) {
+                if (!validateField(element, String.format("%s.%s.%s", packageName, className, methodName))) {
+                    return false;
+                }
+
+                continue;
+            }
+
             if (!element.getModifiers().contains(Modifier.PUBLIC)) {
                 messager.printMessage(Diagnostic.Kind.ERROR,String.format("%s.%s.%s(): only public methods may be annotated with Classifiable", packageName, className, methodName));
                 return false;
@@ -158,15 +262,115 @@ public class ClassifiableProcessor extends AbstractProcessor {
         return true;
     }
 
+    /**
+     * Ensures correct usage of the annotation on a field, the generated setters assign the field from the same
+     * package and notify the generated classifiers through the observable declaring it, which must therefore be a
+     * ClassifiedObservable of these classifiers
+     *
+     * @param element, the field to check
+     * @param qualifiedName, the qualified name of the field, used in the error messages
+     *
+     * @return boolean, true if the field is valid
+     */
+    private boolean validateField(Element element, String qualifiedName) {
+        if (element.getModifiers().contains(Modifier.PRIVATE)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, String.format("%s: only non-private fields may be annotated with Classifiable", qualifiedName));
+            return false;
+        }
+
+        if (element.getModifiers().contains(Modifier.STATIC)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, String.format("%s: only non-static fields may be annotated with Classifiable", qualifiedName));
+            return false;
+        }
+
+        if (element.getModifiers().contains(Modifier.FINAL)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, String.format("%s: only non-final fields may be annotated with Classifiable", qualifiedName));
+            return false;
+        }
+
+        TypeElement enclosing = (TypeElement) element.getEnclosingElement();
+
+        DeclaredType observable = observableSupertype(enclosing);
+
+        if (observable == null) {
+            messager.printMessage(Diagnostic.Kind.ERROR, String.format("%s: only fields of a ClassifiedObservable may be annotated with Classifiable", qualifiedName), element);
+            return false;
+        }
+
+        String enumName = String.format("%s%s", enclosing.getSimpleName().toString(), ClassifiersGenerator.SUFFIX);
+
+        if (!isClassifiers(observable, enclosing, enumName)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, String.format("%s: only fields of a ClassifiedObservable<%s> may be annotated with Classifiable, %s extends %s",
+                    qualifiedName, enumName, enclosing.getSimpleName(), observable), element);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if an observable is typed with the classifiers generated for a class, which may not exist yet
+     *
+     * @param observable, the ClassifiedObservable supertype of the class
+     * @param enclosing, the class
+     * @param enumName, the simple name of the classifiers generated for the class
+     *
+     * @return boolean, true if the type argument of observable is the generated classifiers
+     */
+    private boolean isClassifiers(DeclaredType observable, TypeElement enclosing, String enumName) {
+        if (observable.getTypeArguments().size() != 1) {
+            return false;
+        }
+
+        TypeMirror argument = observable.getTypeArguments().get(0);
+
+        String qualifiedName = String.format("%s.%s", processingEnvironment.getElementUtils().getPackageOf(enclosing).getQualifiedName(), enumName);
+
+        if (argument.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) ((DeclaredType) argument).asElement()).getQualifiedName().contentEquals(qualifiedName);
+        }
+
+        // the classifiers are not generated yet in the first round, the type is then known by the name written
+        return argument.getKind() == TypeKind.ERROR && (argument.toString().equals(enumName) || argument.toString().equals(qualifiedName));
+    }
+
+    /**
+     * Finds the ClassifiedObservable supertype of a class, with the type arguments of the superclasses substituted
+     *
+     * @param type, the class to check
+     *
+     * @return DeclaredType, the ClassifiedObservable superclass of type, null if type does not extend it
+     */
+    private DeclaredType observableSupertype(TypeElement type) {
+        for (TypeMirror current = type.asType(); current.getKind() == TypeKind.DECLARED; ) {
+            List<? extends TypeMirror> supertypes = processingEnvironment.getTypeUtils().directSupertypes(current);
+
+            // the superclass comes first, followed by the interfaces
+            if (supertypes.isEmpty() || supertypes.get(0).getKind() != TypeKind.DECLARED) {
+                return null;
+            }
+
+            DeclaredType superclass = (DeclaredType) supertypes.get(0);
+
+            if (((TypeElement) superclass.asElement()).getQualifiedName().contentEquals(OBSERVABLE)) {
+                return superclass;
+            }
+
+            current = superclass;
+        }
+
+        return null;
+    }
+
     /**
      * Divides the provided collection of elements by class
      *
      * @param annotatedElements, the elements to divide by class
      *
-     * @return Map<Pair, List<Element>>, the lists of elenets indexed by class
+     * @return Map<Pair, List<Element>>, the lists of elenets indexed by class, in the order the classes were first seen
      */
     private Map<Pair, List<Element>> divideClasses(Collection<? extends Element> annotatedElements) {
-        Map<Pair, List<Element>> elements = new HashMap<>();
+        Map<Pair, List<Element>> elements = new LinkedHashMap<>();
 
         for (Element element : annotatedElements) {
             PackageElement packageElement = processingEnvironment.getElementUtils().getPackageOf(element);
@@ -194,7 +398,7 @@ public class ClassifiableProcessor extends AbstractProcessor {
     }
 
     /**
-     * Generates an enum for the specified elements
+     * Generates an enum, a delta codec, the setters of the annotated fields and a dispatcher for the specified elements
      *
      * @param elements, the elements for which to generate an enum
      */
@@ -202,33 +406,100 @@ public class ClassifiableProcessor extends AbstractProcessor {
         for (Map.Entry<Pair, List<Element>> entry : elements.entrySet()) {
             Element enclosing = entry.getKey().element.getEnclosingElement();
 
-            String enumName = String.format("%s%s", enclosing.getSimpleName().toString(), SUFFIX);
+            String enumName = String.format("%s%s", enclosing.getSimpleName().toString(), ClassifiersGenerator.SUFFIX);
 
-            TypeSpec.Builder enumBuilder = TypeSpec.enumBuilder(enumName)
-                    .addModifiers(Modifier.PUBLIC)
-                    .addEnumConstant("_ALL");
+            List<Property> properties = new ArrayList<>();
+
+            Map<String, Element> constants = new HashMap<>();
+
+            boolean unique = true;
 
             for (Element element : entry.getValue()) {
+                long start = startPhase();
+
                 String enumConstantName = prepareEnumConstantName(element.getSimpleName().toString());
 
-                enumBuilder.addEnumConstant(enumConstantName);
+                endPhase(PhaseListener.Phase.PREPARE_ENUM_CONSTANT_NAME, start);
+
+                Element previous = constants.put(enumConstantName, element);
+
+                if (previous != null) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, String.format("%s: the classifier %s is already generated for %s, rename one of them",
+                            describe(element), enumConstantName, describe(previous)), element);
+
+                    unique = false;
+                }
+
+                properties.add(new Property(element, enumConstantName, properties.size() + 1));
+            }
+
+            if (!unique) {
+                continue;
             }
 
             PackageElement packageElement = processingEnvironment.getElementUtils().getPackageOf(enclosing);
             String packageName = packageElement.getQualifiedName().toString();
 
-            try {
-                javaFileWriter.writeTo(packageName, enumBuilder, filer);
+            if (!write(enclosing, packageName, enumName, classifiersGenerator.generate(ClassName.get(packageName, enumName), properties))) {
+                return;
+            }
 
-            } catch (IOException excpt) {
-                messager.printMessage(Diagnostic.Kind.ERROR, String .format("Unable to write %s.%s to a file", packageName, enumName));
-                messager.printMessage(Diagnostic.Kind.ERROR, String.format("\t%s", excpt.getMessage()));
+            TypeSpec.Builder codecBuilder = codecGenerator.generate((TypeElement) enclosing, properties);
 
+            if (codecBuilder != null && !write(enclosing, packageName, String.format("%s%s", enclosing.getSimpleName().toString(), CodecGenerator.SUFFIX), codecBuilder)) {
+                return;
+            }
+
+            TypeSpec.Builder settersBuilder = settersGenerator.generate((TypeElement) enclosing, ClassName.get(packageName, enumName), properties);
+
+            if (settersBuilder != null && !write(enclosing, packageName, String.format("%s%s", enclosing.getSimpleName().toString(), SettersGenerator.SUFFIX), settersBuilder)) {
+                return;
+            }
+
+            if (dispatcherGenerator != null && !write(enclosing, packageName, String.format("%s%s", enclosing.getSimpleName().toString(), DispatcherGenerator.SUFFIX),
+                    dispatcherGenerator.generate((TypeElement) enclosing, ClassName.get(packageName, enumName), properties))) {
                 return;
             }
         }
     }
 
+    /**
+     * Describes an annotated element in an error message
+     *
+     * @param element, the annotated field or method
+     *
+     * @return String, the qualified name of the element, followed by parentheses for methods
+     */
+    private String describe(Element element) {
+        String qualifiedName = String.format("%s.%s", ((TypeElement) element.getEnclosingElement()).getQualifiedName(), element.getSimpleName());
+
+        return element.getKind() == ElementKind.METHOD ? qualifiedName + "()" : qualifiedName;
+    }
+
+    /**
+     * Writes a generated type, reporting an error if it cannot be written
+     *
+     * @param originatingElement, the class the type is generated for, the only originating element of the type
+     * @param packageName, the package of the type
+     * @param typeName, the simple name of the type
+     * @param typeBuilder, the type to write
+     *
+     * @return boolean, true if the type was written
+     */
+    private boolean write(Element originatingElement, String packageName, String typeName, TypeSpec.Builder typeBuilder) {
+        try {
+            javaFileWriter.writeTo(packageName, typeBuilder.addOriginatingElement(originatingElement), filer);
+
+        } catch (IOException excpt) {
+            messager.printMessage(Diagnostic.Kind.ERROR, String .format("Unable to write %s.%s to a file", packageName, typeName));
+            messager.printMessage(Diagnostic.Kind.ERROR, String.format("\t%s", excpt.getMessage()));
+
+            return false;
+        }
+
+        return true;
+    }
+
     /**
      * Adjust the provided name for use as an enum constant
      *
@@ -0,0 +1,48 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_processor;
+
+/**
+ * Receives the time ClassifiableProcessor spends in each of its phases, used to measure the processor at scale
+ *
+ * GENERATE_CODE includes the time spent in PREPARE_ENUM_CONSTANT_NAME, which is reported once per annotated element
+ */
+public interface PhaseListener {
+    /**
+     * The phases of a round
+     */
+    enum Phase {
+        VALIDATE_USAGE,
+
+        DIVIDE_CLASSES,
+
+        GENERATE_CODE,
+
+        PREPARE_ENUM_CONSTANT_NAME
+    }
+
+    /**
+     * Called once a phase completed
+     *
+     * @param phase, the completed phase
+     * @param nanos, the time the phase took in nanoseconds
+     */
+    void onPhase(Phase phase, long nanos);
+}
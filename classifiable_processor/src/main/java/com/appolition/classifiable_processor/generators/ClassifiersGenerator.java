@@ -0,0 +1,234 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_processor.generators;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.lang.model.element.Modifier;
+
+/**
+ * Generates the classifiers enum of a class, with a bit mask per classifier and lookups that do not allocate
+ *
+ * Besides the constants the enum holds the nested Masks class with the bit of each constant X as Masks.X, allMask()
+ * with the bits of every constant, count(), an unmodifiable valueList() and the fromOrdinal() and fromName() lookups.
+ * With more than 64 constants a mask no longer fits a long, Masks.X is then the bit of X within word Words.X of a
+ * multi-word mask of wordCount() words and allMask(int) replaces allMask(). Classifiers are always upper case, so
+ * they cannot take the name of a generated member whatever the properties are named
+ */
+public final class ClassifiersGenerator {
+    /**
+     * The suffix of the generated enum
+     */
+    public static final String SUFFIX = "Classifiers";
+
+    /**
+     * The name of the nested class holding the bit of each classifier
+     */
+    private static final String MASKS = "Masks";
+
+    /**
+     * The name of the nested class holding the word of the bit of each classifier in a multi-word mask
+     */
+    private static final String WORDS = "Words";
+
+    /**
+     * The number of ordinals in a word of a mask
+     */
+    private static final int WORD_SIZE = 64;
+
+    /**
+     * Generates the classifiers of a class
+     *
+     * @param classifiers, the name of the enum
+     * @param properties, the annotated properties of the class, in ordinal order
+     *
+     * @return TypeSpec.Builder, the enum
+     */
+    public TypeSpec.Builder generate(ClassName classifiers, List<Property> properties) {
+        List<String> constants = new ArrayList<>();
+
+        constants.add("_ALL");
+
+        for (Property property : properties) {
+            constants.add(property.constantName);
+        }
+
+        TypeSpec.Builder builder = TypeSpec.enumBuilder(classifiers)
+                .addModifiers(Modifier.PUBLIC);
+
+        for (String constant : constants) {
+            builder.addEnumConstant(constant);
+        }
+
+        boolean multiWord = constants.size() > WORD_SIZE;
+
+        TypeSpec.Builder masks = holder(MASKS, multiWord ? "The bit of each classifier within its word of a mask\n" : "The bit of each classifier in a mask\n");
+        TypeSpec.Builder words = holder(WORDS, "The word of a mask holding the bit of each classifier\n");
+
+        for (int ordinal = 0; ordinal < constants.size(); ++ordinal) {
+            String constant = constants.get(ordinal);
+
+            masks.addField(FieldSpec.builder(long.class, constant, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("1L << $L", ordinal % WORD_SIZE)
+                    .build());
+
+            if (multiWord) {
+                words.addField(FieldSpec.builder(int.class, constant, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$L", ordinal / WORD_SIZE)
+                        .build());
+            }
+        }
+
+        builder.addType(masks.build());
+
+        if (multiWord) {
+            builder.addType(words.build());
+        }
+
+        ArrayTypeName arrayType = ArrayTypeName.of(classifiers);
+
+        builder.addField(FieldSpec.builder(arrayType, "byOrdinal", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addJavadoc("The classifiers by ordinal, values() copies the array on each call\n")
+                .initializer("values()")
+                .build());
+
+        ParameterizedTypeName listType = ParameterizedTypeName.get(ClassName.get(List.class), classifiers);
+
+        builder.addField(FieldSpec.builder(listType, "valueList", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .addJavadoc("The classifiers in ordinal order, unmodifiable\n")
+                        .initializer("$T.unmodifiableList($T.asList(byOrdinal))", Collections.class, Arrays.class)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("valueList")
+                        .addJavadoc("Gets the classifiers without copying values()\n\n")
+                        .addJavadoc("@return $T, the classifiers in ordinal order, unmodifiable\n", listType)
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .returns(listType)
+                        .addStatement("return valueList")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("count")
+                        .addJavadoc("Gets the number of classifiers, including _ALL\n\n")
+                        .addJavadoc("@return int, the number of classifiers\n")
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .returns(int.class)
+                        .addStatement("return $L", constants.size())
+                        .build());
+
+        if (multiWord) {
+            List<CodeBlock> allWords = new ArrayList<>();
+
+            for (int word = 0; word * WORD_SIZE < constants.size(); ++word) {
+                int bits = Math.min(WORD_SIZE, constants.size() - word * WORD_SIZE);
+
+                allWords.add(CodeBlock.of("0x$LL", Long.toHexString(-1L >>> (WORD_SIZE - bits))));
+            }
+
+            builder.addField(FieldSpec.builder(long[].class, "allMaskWords", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                            .addJavadoc("The words of the mask with the bits of every classifier\n")
+                            .initializer("{$L}", CodeBlock.join(allWords, ", "))
+                            .build())
+                    .addMethod(MethodSpec.methodBuilder("allMask")
+                            .addJavadoc("Gets a word of the mask with the bits of every classifier\n\n")
+                            .addJavadoc("@param word, the index of the word\n\n")
+                            .addJavadoc("@return long, the word\n")
+                            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                            .returns(long.class)
+                            .addParameter(int.class, "word")
+                            .addStatement("return allMaskWords[word]")
+                            .build())
+                    .addMethod(MethodSpec.methodBuilder("wordCount")
+                            .addJavadoc("Gets the number of words of a mask of the classifiers\n\n")
+                            .addJavadoc("@return int, the number of words\n")
+                            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                            .returns(int.class)
+                            .addStatement("return $L", allWords.size())
+                            .build());
+
+        } else {
+            builder.addMethod(MethodSpec.methodBuilder("allMask")
+                    .addJavadoc("Gets the mask with the bits of every classifier\n\n")
+                    .addJavadoc("@return long, the mask\n")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .returns(long.class)
+                    .addStatement("return 0x$LL", Long.toHexString(-1L >>> (WORD_SIZE - constants.size())))
+                    .build());
+        }
+
+        builder.addMethod(MethodSpec.methodBuilder("fromOrdinal")
+                .addJavadoc("Gets the classifier with an ordinal without copying values()\n\n")
+                .addJavadoc("@param ordinal, the ordinal\n\n")
+                .addJavadoc("@return $T, the classifier\n\n", classifiers)
+                .addJavadoc("@throws ArrayIndexOutOfBoundsException, if no classifier has the ordinal\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(classifiers)
+                .addParameter(int.class, "ordinal")
+                .addStatement("return byOrdinal[ordinal]")
+                .build());
+
+        MethodSpec.Builder fromName = MethodSpec.methodBuilder("fromName")
+                .addJavadoc("Gets the classifier with a name, unlike valueOf() an unknown name is not an error\n\n")
+                .addJavadoc("@param name, the name of the classifier, must not be null\n\n")
+                .addJavadoc("@return $T, the classifier, null if no classifier has the name\n", classifiers)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(classifiers)
+                .addParameter(String.class, "name")
+                .beginControlFlow("switch (name)");
+
+        for (String constant : constants) {
+            fromName.addCode("case $S:\n$>", constant)
+                    .addStatement("return $L", constant)
+                    .addCode("$<");
+        }
+
+        fromName.addCode("default:\n$>")
+                .addStatement("return null")
+                .addCode("$<")
+                .endControlFlow();
+
+        return builder.addMethod(fromName.build());
+    }
+
+    /**
+     * Creates a nested class holding a constant per classifier
+     *
+     * @param name, the name of the class
+     * @param javadoc, the documentation of the class
+     *
+     * @return TypeSpec.Builder, the class, which cannot be instantiated
+     */
+    private static TypeSpec.Builder holder(String name, String javadoc) {
+        return TypeSpec.classBuilder(name)
+                .addJavadoc(javadoc)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .build());
+    }
+}
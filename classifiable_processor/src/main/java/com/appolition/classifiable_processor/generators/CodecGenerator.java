@@ -0,0 +1,345 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_processor.generators;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Generates a codec that writes the properties in a dirty mask to a ByteBuffer and applies such a delta in place
+ *
+ * A delta is a sequence of entries, each a byte holding the ordinal of the property followed by its value in a
+ * primitive encoding, terminated by a 0 byte, which is the ordinal of _ALL. A property is included if it is read by
+ * a getter of a primitive or String type, has a public setter of the same type and an ordinal below 64. The setter may
+ * be declared by the class or inherited from one of its supertypes
+ */
+public final class CodecGenerator {
+    /**
+     * The suffix of the generated codec
+     */
+    public static final String SUFFIX = "Codec";
+
+    /**
+     * Used to compare the types of getters and setters
+     */
+    private final Types types;
+
+    /**
+     * Used to find the setters inherited from supertypes
+     */
+    private final Elements elements;
+
+    /**
+     * Constructs a generator
+     *
+     * @param types, used to compare the types of getters and setters
+     * @param elements, used to find the setters inherited from supertypes
+     */
+    public CodecGenerator(Types types, Elements elements) {
+        this.types = types;
+        this.elements = elements;
+    }
+
+    /**
+     * Generates the codec of a class
+     *
+     * @param enclosing, the class declaring the properties
+     * @param properties, the annotated properties of the class
+     *
+     * @return TypeSpec.Builder, the codec, null if no property can be encoded
+     */
+    public TypeSpec.Builder generate(TypeElement enclosing, List<Property> properties) {
+        List<Accessors> encodable = new ArrayList<>();
+
+        boolean strings = false;
+
+        for (Property property : properties) {
+            Accessors accessors = accessorsOf(enclosing, property);
+
+            if (accessors != null) {
+                encodable.add(accessors);
+
+                strings |= accessors.type.getKind() == TypeKind.DECLARED;
+            }
+        }
+
+        if (encodable.isEmpty()) {
+            return null;
+        }
+
+        ClassName className = ClassName.get(enclosing);
+
+        MethodSpec.Builder write = MethodSpec.methodBuilder("writeDelta")
+                .addJavadoc("Writes the properties in the dirty mask to the buffer\n\n")
+                .addJavadoc("@param source, the object to read the properties of\n")
+                .addJavadoc("@param dirty, the mask of the properties to write, the _ALL bit writes all of them\n")
+                .addJavadoc("@param buffer, the buffer to write to\n\n")
+                .addJavadoc("@return int, the number of properties written\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(int.class)
+                .addParameter(className, "source")
+                .addParameter(long.class, "dirty")
+                .addParameter(ByteBuffer.class, "buffer")
+                .addStatement("boolean all = (dirty & 1L) != 0")
+                .addStatement("int written = 0");
+
+        MethodSpec.Builder apply = MethodSpec.methodBuilder("applyDelta")
+                .addJavadoc("Sets the properties written to the buffer by writeDelta\n\n")
+                .addJavadoc("@param target, the object to set the properties of\n")
+                .addJavadoc("@param buffer, the buffer to read from\n\n")
+                .addJavadoc("@throws IllegalArgumentException, if the buffer holds an unknown property\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(className, "target")
+                .addParameter(ByteBuffer.class, "buffer")
+                .beginControlFlow("for (byte tag = buffer.get(); tag != 0; tag = buffer.get())")
+                .beginControlFlow("switch (tag)");
+
+        for (Accessors accessors : encodable) {
+            write.beginControlFlow("if (all || (dirty & 1L << $L) != 0)", accessors.ordinal)
+                    .addStatement("buffer.put((byte) $L)", accessors.ordinal);
+
+            String value = String.format("source.%s()", accessors.getter);
+
+            switch (accessors.type.getKind()) {
+                case BOOLEAN:
+                    write.addStatement("buffer.put((byte) ($L ? 1 : 0))", value);
+                    break;
+
+                case BYTE:
+                    write.addStatement("buffer.put($L)", value);
+                    break;
+
+                case DECLARED:
+                    write.addStatement("putString(buffer, $L)", value);
+                    break;
+
+                default:
+                    write.addStatement("buffer.put$L($L)", encoding(accessors.type), value);
+                    break;
+            }
+
+            write.addStatement("++written")
+                    .endControlFlow();
+
+            apply.addCode("case $L:\n", accessors.ordinal)
+                    .addStatement("$>target.$L($L)", accessors.setter, read(accessors.type))
+                    .addStatement("break$<");
+        }
+
+        write.addStatement("buffer.put((byte) 0)")
+                .addStatement("return written");
+
+        apply.addCode("default:\n")
+                .addStatement("$>throw new IllegalArgumentException(\"Unknown property tag \" + tag)$<")
+                .endControlFlow()
+                .endControlFlow();
+
+        TypeSpec.Builder codec = TypeSpec.classBuilder(String.format("%s%s", enclosing.getSimpleName().toString(), SUFFIX))
+                .addJavadoc("Writes and applies deltas of the properties of $T\n", className)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+                .addMethod(write.build())
+                .addMethod(apply.build());
+
+        if (strings) {
+            codec.addMethod(MethodSpec.methodBuilder("putString")
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .addParameter(ByteBuffer.class, "buffer")
+                    .addParameter(String.class, "value")
+                    .beginControlFlow("if (value == null)")
+                    .addStatement("buffer.putInt(-1)")
+                    .addStatement("return")
+                    .endControlFlow()
+                    .addStatement("byte[] bytes = value.getBytes($T.UTF_8)", StandardCharsets.class)
+                    .addStatement("buffer.putInt(bytes.length)")
+                    .addStatement("buffer.put(bytes)")
+                    .build());
+
+            codec.addMethod(MethodSpec.methodBuilder("getString")
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .returns(String.class)
+                    .addParameter(ByteBuffer.class, "buffer")
+                    .addStatement("int length = buffer.getInt()")
+                    .beginControlFlow("if (length < 0)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("byte[] bytes = new byte[length]")
+                    .addStatement("buffer.get(bytes)")
+                    .addStatement("return new String(bytes, $T.UTF_8)", StandardCharsets.class)
+                    .build());
+        }
+
+        return codec;
+    }
+
+    /**
+     * Finds the getter and setter of a property
+     *
+     * @param enclosing, the class declaring the property
+     * @param property, the property
+     *
+     * @return Accessors, the accessors, null if the property cannot be encoded
+     */
+    private Accessors accessorsOf(TypeElement enclosing, Property property) {
+        if (property.ordinal >= 64 || property.element.getKind() != ElementKind.METHOD) {
+            return null;
+        }
+
+        ExecutableElement getter = (ExecutableElement) property.element;
+
+        String getterName = getter.getSimpleName().toString();
+
+        String suffix = getterName.startsWith("get") ? getterName.substring(3) : getterName.startsWith("is") ? getterName.substring(2) : "";
+
+        TypeMirror type = getter.getReturnType();
+
+        if (suffix.isEmpty() || !getter.getParameters().isEmpty() || !isEncodable(type)) {
+            return null;
+        }
+
+        String setterName = String.format("set%s", suffix);
+
+        for (Element element : elements.getAllMembers(enclosing)) {
+            if (element.getKind() != ElementKind.METHOD || !element.getSimpleName().contentEquals(setterName)) {
+                continue;
+            }
+
+            ExecutableElement setter = (ExecutableElement) element;
+
+            if (!setter.getModifiers().contains(Modifier.PUBLIC) || setter.getModifiers().contains(Modifier.STATIC) || setter.getParameters().size() != 1) {
+                continue;
+            }
+
+            // the parameter of a setter inherited from a generic supertype, as seen from the class
+            ExecutableType setterType = (ExecutableType) types.asMemberOf((DeclaredType) enclosing.asType(), setter);
+
+            if (types.isSameType(setterType.getParameterTypes().get(0), type)) {
+                return new Accessors(property.ordinal, type, getterName, setterName);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if a type has a primitive encoding
+     *
+     * @param type, the type to check
+     *
+     * @return boolean, true for primitive types and String
+     */
+    private static boolean isEncodable(TypeMirror type) {
+        return type.getKind().isPrimitive() || (type.getKind() == TypeKind.DECLARED && type.toString().equals(String.class.getName()));
+    }
+
+    /**
+     * Gets the suffix of the ByteBuffer methods encoding a primitive type
+     *
+     * @param type, the primitive type
+     *
+     * @return String, the suffix, such as Int for putInt and getInt
+     */
+    private static String encoding(TypeMirror type) {
+        String kind = type.getKind().name().toLowerCase();
+
+        return Character.toUpperCase(kind.charAt(0)) + kind.substring(1);
+    }
+
+    /**
+     * Gets the expression reading a value of a type from the buffer
+     *
+     * @param type, the type of the value
+     *
+     * @return String, the expression
+     */
+    private static String read(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "buffer.get() != 0";
+
+            case BYTE:
+                return "buffer.get()";
+
+            case DECLARED:
+                return "getString(buffer)";
+
+            default:
+                return String.format("buffer.get%s()", encoding(type));
+        }
+    }
+
+    /**
+     * The accessors of an encodable property
+     */
+    private static final class Accessors {
+        /**
+         * The ordinal of the property, used as its tag
+         */
+        final int ordinal;
+
+        /**
+         * The type of the property
+         */
+        final TypeMirror type;
+
+        /**
+         * The name of the getter
+         */
+        final String getter;
+
+        /**
+         * The name of the setter
+         */
+        final String setter;
+
+        /**
+         * Constructs accessors
+         *
+         * @param ordinal, the ordinal of the property, used as its tag
+         * @param type, the type of the property
+         * @param getter, the name of the getter
+         * @param setter, the name of the setter
+         */
+        Accessors(int ordinal, TypeMirror type, String getter, String setter) {
+            this.ordinal = ordinal;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
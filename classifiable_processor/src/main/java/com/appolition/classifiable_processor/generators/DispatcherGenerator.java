@@ -0,0 +1,235 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_processor.generators;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.NameAllocator;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Generates the dispatcher of a class, holding the callbacks of each classifier in a field of its own and calling
+ * them from a switch over the ordinal
+ *
+ * Each field is called by a private method of its own rather than a shared loop, so the JIT profiles the callback
+ * call site of each classifier separately and can inline the callbacks of a classifier that sees a single type
+ *
+ * A copy with the callbacks of one classifier replaced is made by cloning the dispatcher and assigning a single
+ * field, so the generated code grows linearly with the number of classifiers and the fields, which are only
+ * assigned before the copy is published, need no constructor parameters
+ *
+ * ClassifiedObservable looks the dispatcher up by name once an observable holds more registrations than fit
+ * without a table, so a dispatcher is only generated when ClassifierDispatcher is on the classpath
+ */
+public final class DispatcherGenerator {
+    /**
+     * The suffix of the generated dispatcher
+     */
+    public static final String SUFFIX = "Dispatcher";
+
+    /**
+     * The package of the observables
+     */
+    private static final String OBSERVABLES_PACKAGE = "com.appolition.classifiable.observables";
+
+    /**
+     * The base class of the generated dispatchers
+     */
+    public static final ClassName DISPATCHER = ClassName.get(OBSERVABLES_PACKAGE, "ClassifierDispatcher");
+
+    /**
+     * The callback type held by the dispatchers
+     */
+    private static final ClassName CALLBACK = ClassName.get(OBSERVABLES_PACKAGE, "ClassifiedObservable", "OnPropertChangedCallback");
+
+    /**
+     * Generates the dispatcher of a class
+     *
+     * @param enclosing, the class declaring the annotated properties
+     * @param classifiers, the generated classifiers of the class
+     * @param properties, the annotated properties of the class, in ordinal order
+     *
+     * @return TypeSpec.Builder, the dispatcher
+     */
+    public TypeSpec.Builder generate(TypeElement enclosing, ClassName classifiers, List<Property> properties) {
+        String dispatcherName = String.format("%s%s", enclosing.getSimpleName().toString(), SUFFIX);
+
+        ClassName dispatcher = ClassName.get(classifiers.packageName(), dispatcherName);
+
+        ArrayTypeName callbacksType = ArrayTypeName.of(CALLBACK);
+
+        NameAllocator names = new NameAllocator();
+
+        List<String> fields = new ArrayList<>();
+
+        fields.add(names.newName("allCallbacks"));
+
+        for (Property property : properties) {
+            fields.add(names.newName(String.format("%sCallbacks", camelCase(property.constantName))));
+        }
+
+        TypeSpec.Builder builder = TypeSpec.classBuilder(dispatcherName)
+                .addJavadoc("Holds the callbacks of each of $T in a field of its own and calls them from a switch\n", classifiers)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .superclass(ParameterizedTypeName.get(DISPATCHER, classifiers))
+                .addSuperinterface(Cloneable.class);
+
+        for (String field : fields) {
+            builder.addField(callbacksType, field, Modifier.PRIVATE);
+        }
+
+        builder.addMethod(MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .build());
+
+        builder.addMethod(MethodSpec.methodBuilder("slots")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .returns(int.class)
+                .addStatement("return $L", fields.size())
+                .build());
+
+        MethodSpec.Builder callbacks = MethodSpec.methodBuilder("callbacks")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .returns(callbacksType)
+                .addParameter(int.class, "ordinal")
+                .beginControlFlow("switch (ordinal)");
+
+        MethodSpec copy = MethodSpec.methodBuilder("copy")
+                .addModifiers(Modifier.PRIVATE)
+                .returns(dispatcher)
+                .beginControlFlow("try")
+                .addStatement("return ($T) clone()", dispatcher)
+                .nextControlFlow("catch ($T excpt)", CloneNotSupportedException.class)
+                .addStatement("throw new $T(excpt)", AssertionError.class)
+                .endControlFlow()
+                .build();
+
+        MethodSpec.Builder withCallbacks = MethodSpec.methodBuilder("withCallbacks")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .returns(dispatcher)
+                .addParameter(int.class, "ordinal")
+                .addParameter(callbacksType, "callbacks")
+                .addStatement("$T copy = $N()", dispatcher, copy)
+                .beginControlFlow("switch (ordinal)");
+
+        MethodSpec.Builder dispatch = MethodSpec.methodBuilder("dispatch")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .addParameter(int.class, "ordinal")
+                .beginControlFlow("switch (ordinal)");
+
+        List<MethodSpec> invokers = new ArrayList<>();
+
+        for (String field : fields) {
+            invokers.add(MethodSpec.methodBuilder(String.format("invoke%s%s", Character.toUpperCase(field.charAt(0)), field.substring(1)))
+                    .addModifiers(Modifier.PRIVATE)
+                    .beginControlFlow("if ($L == null)", field)
+                    .addStatement("return")
+                    .endControlFlow()
+                    .beginControlFlow("for ($T callback : $L)", CALLBACK, field)
+                    .beginControlFlow("if (callback != null)")
+                    .addStatement("callback.onPropertyChanged()")
+                    .endControlFlow()
+                    .endControlFlow()
+                    .build());
+        }
+
+        for (int ordinal = 0; ordinal < fields.size(); ++ordinal) {
+            callbacks.addCode("case $L:\n$>", ordinal)
+                    .addStatement("return $L", fields.get(ordinal))
+                    .addCode("$<");
+
+            withCallbacks.addCode("case $L:\n$>", ordinal)
+                    .addStatement("copy.$L = callbacks", fields.get(ordinal))
+                    .addStatement("break")
+                    .addCode("$<");
+
+            dispatch.addCode("case $L:\n$>", ordinal);
+
+            if (ordinal == 0) {
+                for (MethodSpec invoker : invokers) {
+                    dispatch.addStatement("$N()", invoker);
+                }
+
+            } else {
+                dispatch.addStatement("$N()", invokers.get(ordinal));
+            }
+
+            dispatch.addStatement("break")
+                    .addCode("$<");
+        }
+
+        callbacks.addCode("default:\n$>")
+                .addStatement("return null")
+                .addCode("$<")
+                .endControlFlow();
+
+        withCallbacks.addCode("default:\n$>")
+                .addStatement("throw new $T(\"No classifier with ordinal \" + ordinal)", IllegalArgumentException.class)
+                .addCode("$<")
+                .endControlFlow()
+                .addStatement("return copy");
+
+        dispatch.endControlFlow();
+
+        return builder.addMethod(callbacks.build())
+                .addMethod(withCallbacks.build())
+                .addMethod(dispatch.build())
+                .addMethod(copy)
+                .addMethods(invokers);
+    }
+
+    /**
+     * Converts an enum constant name to lower camel case
+     *
+     * @param constantName, the name to convert, FIRST_NAME
+     *
+     * @return String, the converted name, firstName
+     */
+    private static String camelCase(String constantName) {
+        StringBuilder name = new StringBuilder();
+
+        boolean upper = false;
+
+        for (char c : constantName.toCharArray()) {
+            if (c == '_') {
+                upper = name.length() > 0;
+
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+
+                upper = false;
+            }
+        }
+
+        return name.toString();
+    }
+}
@@ -0,0 +1,55 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_processor.generators;
+
+import javax.lang.model.element.Element;
+
+/**
+ * An annotated property of a class along with the classifier generated for it
+ */
+public final class Property {
+    /**
+     * The annotated element
+     */
+    public final Element element;
+
+    /**
+     * The name of the enum constant of the property
+     */
+    public final String constantName;
+
+    /**
+     * The ordinal of the enum constant of the property
+     */
+    public final int ordinal;
+
+    /**
+     * Constructs a property
+     *
+     * @param element, the annotated element
+     * @param constantName, the name of the enum constant of the property
+     * @param ordinal, the ordinal of the enum constant of the property
+     */
+    public Property(Element element, String constantName, int ordinal) {
+        this.element = element;
+        this.constantName = constantName;
+        this.ordinal = ordinal;
+    }
+}
@@ -0,0 +1,115 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_processor.generators;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.List;
+import java.util.Objects;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Generates the notifying setters of the annotated fields of a class
+ *
+ * Each setter compares the new value to the current one and only assigns and notifies when they differ, passing
+ * the old and new value to the typed notifyPropertyChanged overload of the type. Doubles and floats are compared
+ * with Double.compare() and Float.compare(), objects with Objects.equals(). The processor only generates setters for a
+ * class that is a ClassifiedObservable of its generated classifiers, so that these overloads accept the classifiers
+ */
+public final class SettersGenerator {
+    /**
+     * The suffix of the generated setters
+     */
+    public static final String SUFFIX = "Setters";
+
+    /**
+     * Generates the setters of a class
+     *
+     * @param enclosing, the class declaring the fields
+     * @param classifiers, the generated classifiers of the class
+     * @param properties, the annotated properties of the class
+     *
+     * @return TypeSpec.Builder, the setters, null if no field is annotated
+     */
+    public TypeSpec.Builder generate(TypeElement enclosing, ClassName classifiers, List<Property> properties) {
+        ClassName className = ClassName.get(enclosing);
+
+        TypeSpec.Builder setters = TypeSpec.classBuilder(String.format("%s%s", enclosing.getSimpleName().toString(), SUFFIX))
+                .addJavadoc("Sets the properties of $T, notifying only the properties that changed\n", className)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build());
+
+        boolean generated = false;
+
+        for (Property property : properties) {
+            if (property.element.getKind() != ElementKind.FIELD) {
+                continue;
+            }
+
+            String fieldName = property.element.getSimpleName().toString();
+
+            TypeMirror type = property.element.asType();
+
+            MethodSpec.Builder setter = MethodSpec.methodBuilder(String.format("set%s%s", Character.toUpperCase(fieldName.charAt(0)), fieldName.substring(1)))
+                    .addJavadoc("Sets $L and notifies $T.$L if the value changed\n\n", fieldName, classifiers, property.constantName)
+                    .addJavadoc("@param target, the object to set the property of\n")
+                    .addJavadoc("@param value, the new value\n\n")
+                    .addJavadoc("@return boolean, true if the value changed\n")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .returns(boolean.class)
+                    .addParameter(className, "target")
+                    .addParameter(TypeName.get(type), "value")
+                    .addStatement("$T oldValue = target.$L", TypeName.get(type), fieldName);
+
+            if (type.getKind() == TypeKind.DOUBLE) {
+                setter.beginControlFlow("if ($T.compare(oldValue, value) == 0)", Double.class);
+
+            } else if (type.getKind() == TypeKind.FLOAT) {
+                setter.beginControlFlow("if ($T.compare(oldValue, value) == 0)", Float.class);
+
+            } else if (type.getKind().isPrimitive()) {
+                setter.beginControlFlow("if (oldValue == value)");
+
+            } else {
+                setter.beginControlFlow("if ($T.equals(oldValue, value))", Objects.class);
+            }
+
+            setter.addStatement("return false")
+                    .endControlFlow()
+                    .addStatement("target.$L = value", fieldName)
+                    .addStatement("target.notifyPropertyChanged($T.$L, oldValue, value)", classifiers, property.constantName)
+                    .addStatement("return true");
+
+            setters.addMethod(setter.build());
+
+            generated = true;
+        }
+
+        return generated ? setters : null;
+    }
+}
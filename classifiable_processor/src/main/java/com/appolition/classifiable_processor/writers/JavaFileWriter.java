@@ -25,5 +25,5 @@ import java.io.IOException;
 import javax.annotation.processing.Filer;
 
 public interface JavaFileWriter {
-    void writeTo(String packageName, TypeSpec.Builder enumBuilder, Filer filer) throws IOException;
+    void writeTo(String packageName, TypeSpec.Builder typeBuilder, Filer filer) throws IOException;
 }
@@ -27,8 +27,8 @@ import javax.annotation.processing.Filer;
 
 public class ProcessingEnvironmentJavaFileWriter implements JavaFileWriter {
     @Override
-    public void writeTo(String packageName, TypeSpec.Builder enumBuilder, Filer filer) throws IOException {
-        JavaFile.builder(packageName, enumBuilder.build())
+    public void writeTo(String packageName, TypeSpec.Builder typeBuilder, Filer filer) throws IOException {
+        JavaFile.builder(packageName, typeBuilder.build())
                 .indent("    ")
                 .build().writeTo(filer);
     }
@@ -19,6 +19,8 @@
 package com.appolition.classifiable_processor;
 
 import com.appolition.classifiable_processor.writers.IOExceptionThrowingJavaFileWriter;
+import com.appolition.classifiable_processor.writers.ProcessingEnvironmentJavaFileWriter;
+import com.appolition.classifiable_processor.writers.RecordingJavaFileWriter;
 import com.google.common.base.Joiner;
 import com.google.common.truth.Truth;
 import com.google.testing.compile.Compilation;
@@ -28,6 +30,10 @@ import com.google.testing.compile.JavaSourcesSubjectFactory;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.tools.JavaFileObject;
 
@@ -35,11 +41,87 @@ import static com.google.testing.compile.CompilationSubject.assertThat;
 import static com.google.testing.compile.Compiler.javac;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNotEquals;
 
 public class ClassifiableProcessorTests {
     private static final String NEW_LINE = "\n";
 
+    private static final JavaFileObject OBSERVABLE = JavaFileObjects.forSourceString(
+            "com.appolition.classifiable.observables.ClassifiedObservable",
+            Joiner.on(NEW_LINE).join(
+                    "package com.appolition.classifiable.observables;",
+                    "",
+                    "public class ClassifiedObservable<ClassifiersType extends Enum<ClassifiersType>> {",
+                    "    public void notifyPropertyChanged(ClassifiersType classifier, int oldValue, int newValue) {",
+                    "    }",
+                    "",
+                    "    public void notifyPropertyChanged(ClassifiersType classifier, long oldValue, long newValue) {",
+                    "    }",
+                    "",
+                    "    public void notifyPropertyChanged(ClassifiersType classifier, double oldValue, double newValue) {",
+                    "    }",
+                    "",
+                    "    public void notifyPropertyChanged(ClassifiersType classifier, boolean oldValue, boolean newValue) {",
+                    "    }",
+                    "",
+                    "    public <T> void notifyPropertyChanged(ClassifiersType classifier, T oldValue, T newValue) {",
+                    "    }",
+                    "",
+                    "    public interface OnPropertChangedCallback {",
+                    "        void onPropertyChanged();",
+                    "    }",
+                    "}"));
+
+    private static final JavaFileObject DISPATCHER = JavaFileObjects.forSourceString(
+            "com.appolition.classifiable.observables.ClassifierDispatcher",
+            Joiner.on(NEW_LINE).join(
+                    "package com.appolition.classifiable.observables;",
+                    "",
+                    "import com.appolition.classifiable.observables.ClassifiedObservable.OnPropertChangedCallback;",
+                    "",
+                    "public abstract class ClassifierDispatcher<ClassifiersType extends Enum<ClassifiersType>> {",
+                    "    protected abstract int slots();",
+                    "",
+                    "    protected abstract OnPropertChangedCallback[] callbacks(int ordinal);",
+                    "",
+                    "    protected abstract ClassifierDispatcher<ClassifiersType> withCallbacks(int ordinal, OnPropertChangedCallback[] callbacks);",
+                    "",
+                    "    protected abstract void dispatch(int ordinal);",
+                    "}"));
+
+    private static JavaFileObject annotatedClass(String name, String... properties) {
+        StringBuilder methods = new StringBuilder();
+
+        for (String property : properties) {
+            methods.append(String.format("    @Classifiable%n    public int get%s() {%n        return 0;%n    }%n", property));
+        }
+
+        return JavaFileObjects.forSourceString(
+                String.format("com.appolition.%s", name),
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        String.format("public class %s {", name),
+                        methods.toString(),
+                        "}"));
+    }
+
+    private static RecordingJavaFileWriter process(JavaFileObject... inputs) {
+        RecordingJavaFileWriter writer = new RecordingJavaFileWriter();
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor(writer))
+                .compile(inputs);
+
+        assertThat(compilation).succeeded();
+
+        return writer;
+    }
+
     @Test
     public void pairsEqual() {
         ClassifiableProcessor.Pair pair1 = new ClassifiableProcessor.Pair(null, "foo");
@@ -87,10 +169,286 @@ public class ClassifiableProcessorTests {
                 Joiner.on(NEW_LINE).join(
                         "package com.appolition;",
                         "",
+                        "import java.lang.String;",
+                        "import java.util.Arrays;",
+                        "import java.util.Collections;",
+                        "import java.util.List;",
+                        "",
                         "public enum FooClassifiers {",
                         "    _ALL,",
                         "",
-                        "    BAR,",
+                        "    BAR;",
+                        "",
+                        "    private static final FooClassifiers[] byOrdinal = values();",
+                        "",
+                        "    private static final List<FooClassifiers> valueList = Collections.unmodifiableList(Arrays.asList(byOrdinal));",
+                        "",
+                        "    public static List<FooClassifiers> valueList() {",
+                        "        return valueList;",
+                        "    }",
+                        "",
+                        "    public static int count() {",
+                        "        return 2;",
+                        "    }",
+                        "",
+                        "    public static long allMask() {",
+                        "        return 0x3L;",
+                        "    }",
+                        "",
+                        "    public static FooClassifiers fromOrdinal(int ordinal) {",
+                        "        return byOrdinal[ordinal];",
+                        "    }",
+                        "",
+                        "    public static FooClassifiers fromName(String name) {",
+                        "        switch (name) {",
+                        "            case \"_ALL\":",
+                        "                return _ALL;",
+                        "            case \"BAR\":",
+                        "                return BAR;",
+                        "            default:",
+                        "                return null;",
+                        "        }",
+                        "    }",
+                        "",
+                        "    public static final class Masks {",
+                        "        public static final long _ALL = 1L << 0;",
+                        "",
+                        "        public static final long BAR = 1L << 1;",
+                        "",
+                        "        private Masks() {",
+                        "        }",
+                        "    }",
+                        "}"));
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(input))
+                .processedWith(new ClassifiableProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(output);
+    }
+
+    @Test
+    public void manyMethodsAnnotated_MultiWordMasksGenerated() {
+        StringBuilder methods = new StringBuilder();
+
+        for (int i = 1; i <= 70; ++i) {
+            methods.append(String.format("    @Classifiable%n    public int getP%d() {%n        return 0;%n    }%n", i));
+        }
+
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo {",
+                        methods.toString(),
+                        "}"));
+
+        final JavaFileObject usage = JavaFileObjects.forSourceString(
+                "com.appolition.Usage",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "class Usage {",
+                        "    static final int WORDS = FooClassifiers.wordCount();",
+                        "    static final int WORD = FooClassifiers.Words.P70;",
+                        "    static final long MASK = FooClassifiers.Masks.P70;",
+                        "    static final long ALL = FooClassifiers.allMask(1);",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(input, usage);
+
+        assertThat(compilation).succeeded();
+
+        assertThat(compilation)
+                .generatedSourceFile("com.appolition.FooClassifiers")
+                .contentsAsUtf8String()
+                .contains("public static final int P70 = 1;");
+
+        assertThat(compilation)
+                .generatedSourceFile("com.appolition.FooClassifiers")
+                .contentsAsUtf8String()
+                .contains("private static final long[] allMaskWords = {0xffffffffffffffffL, 0x7fL};");
+    }
+
+    @Test
+    public void classifiersNamedLikeMembers_Compile() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo {",
+                        "    @Classifiable",
+                        "    public int getCount() {",
+                        "        return 0;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public int getValues() {",
+                        "        return 0;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public int getWords() {",
+                        "        return 0;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public int getBar() {",
+                        "        return 0;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public int getBarMask() {",
+                        "        return 0;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public int getAllMask() {",
+                        "        return 0;",
+                        "    }",
+                        "}"));
+
+        final JavaFileObject usage = JavaFileObjects.forSourceString(
+                "com.appolition.Usage",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "class Usage {",
+                        "    static final FooClassifiers COUNT = FooClassifiers.COUNT;",
+                        "    static final long BAR = FooClassifiers.Masks.BAR;",
+                        "    static final long BAR_MASK = FooClassifiers.Masks.BAR_MASK;",
+                        "    static final long ALL = FooClassifiers.allMask();",
+                        "    static final int SIZE = FooClassifiers.count();",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(input, usage);
+
+        assertThat(compilation).succeeded();
+    }
+
+    @Test
+    public void codecGenerated() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo {",
+                        "    private int age;",
+                        "    private String name;",
+                        "    private Object tag;",
+                        "    private boolean active;",
+                        "",
+                        "    @Classifiable",
+                        "    public int getAge() {",
+                        "        return age;",
+                        "    }",
+                        "",
+                        "    public void setAge(int age) {",
+                        "        this.age = age;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public Object getTag() {",
+                        "        return tag;",
+                        "    }",
+                        "",
+                        "    public void setTag(Object tag) {",
+                        "        this.tag = tag;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public String getName() {",
+                        "        return name;",
+                        "    }",
+                        "",
+                        "    public void setName(String name) {",
+                        "        this.name = name;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public boolean isActive() {",
+                        "        return active;",
+                        "    }",
+                        "}"));
+
+        final JavaFileObject output = JavaFileObjects.forSourceString(
+                "com.appolition.FooCodec",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import java.lang.String;",
+                        "import java.nio.ByteBuffer;",
+                        "import java.nio.charset.StandardCharsets;",
+                        "",
+                        "public final class FooCodec {",
+                        "    private FooCodec() {",
+                        "    }",
+                        "",
+                        "    public static int writeDelta(Foo source, long dirty, ByteBuffer buffer) {",
+                        "        boolean all = (dirty & 1L) != 0;",
+                        "        int written = 0;",
+                        "        if (all || (dirty & 1L << 1) != 0) {",
+                        "            buffer.put((byte) 1);",
+                        "            buffer.putInt(source.getAge());",
+                        "            ++written;",
+                        "        }",
+                        "        if (all || (dirty & 1L << 3) != 0) {",
+                        "            buffer.put((byte) 3);",
+                        "            putString(buffer, source.getName());",
+                        "            ++written;",
+                        "        }",
+                        "        buffer.put((byte) 0);",
+                        "        return written;",
+                        "    }",
+                        "",
+                        "    public static void applyDelta(Foo target, ByteBuffer buffer) {",
+                        "        for (byte tag = buffer.get(); tag != 0; tag = buffer.get()) {",
+                        "            switch (tag) {",
+                        "                case 1:",
+                        "                    target.setAge(buffer.getInt());",
+                        "                    break;",
+                        "                case 3:",
+                        "                    target.setName(getString(buffer));",
+                        "                    break;",
+                        "                default:",
+                        "                    throw new IllegalArgumentException(\"Unknown property tag \" + tag);",
+                        "            }",
+                        "        }",
+                        "    }",
+                        "",
+                        "    private static void putString(ByteBuffer buffer, String value) {",
+                        "        if (value == null) {",
+                        "            buffer.putInt(-1);",
+                        "            return;",
+                        "        }",
+                        "        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);",
+                        "        buffer.putInt(bytes.length);",
+                        "        buffer.put(bytes);",
+                        "    }",
+                        "",
+                        "    private static String getString(ByteBuffer buffer) {",
+                        "        int length = buffer.getInt();",
+                        "        if (length < 0) {",
+                        "            return null;",
+                        "        }",
+                        "        byte[] bytes = new byte[length];",
+                        "        buffer.get(bytes);",
+                        "        return new String(bytes, StandardCharsets.UTF_8);",
+                        "    }",
                         "}"));
 
         Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
@@ -101,6 +459,631 @@ public class ClassifiableProcessorTests {
                 .generatesSources(output);
     }
 
+    @Test
+    public void codecGenerated_InheritedSettersUsed() {
+        final JavaFileObject base = JavaFileObjects.forSourceString(
+                "com.appolition.Base",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "public class Base<T> {",
+                        "    protected int age;",
+                        "    protected T name;",
+                        "",
+                        "    public void setAge(int age) {",
+                        "        this.age = age;",
+                        "    }",
+                        "",
+                        "    public void setName(T name) {",
+                        "        this.name = name;",
+                        "    }",
+                        "}"));
+
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo extends Base<String> {",
+                        "    @Classifiable",
+                        "    public int getAge() {",
+                        "        return age;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public String getName() {",
+                        "        return name;",
+                        "    }",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(base, input);
+
+        assertThat(compilation).succeeded();
+
+        assertThat(compilation)
+                .generatedSourceFile("com.appolition.FooCodec")
+                .contentsAsUtf8String()
+                .contains("target.setAge(buffer.getInt());");
+
+        assertThat(compilation)
+                .generatedSourceFile("com.appolition.FooCodec")
+                .contentsAsUtf8String()
+                .contains("target.setName(getString(buffer));");
+    }
+
+    @Test
+    public void noEncodableProperties_NoCodecGenerated() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo {",
+                        "    private String bar;",
+                        "",
+                        "    @Classifiable",
+                        "    public String getBar() {",
+                        "        return bar;",
+                        "    }",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(input);
+
+        assertThat(compilation).succeeded();
+
+        assertFalse("Codec was generated without encodable properties", compilation.generatedSourceFile("com.appolition.FooCodec").isPresent());
+    }
+
+    @Test
+    public void fieldsAnnotated_SettersGenerated() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable.observables.ClassifiedObservable;",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo extends ClassifiedObservable<FooClassifiers> {",
+                        "    @Classifiable",
+                        "    int age;",
+                        "",
+                        "    @Classifiable",
+                        "    protected float ratio;",
+                        "",
+                        "    @Classifiable",
+                        "    String firstName;",
+                        "}"));
+
+        final JavaFileObject output = JavaFileObjects.forSourceString(
+                "com.appolition.FooSetters",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import java.lang.Float;",
+                        "import java.lang.String;",
+                        "import java.util.Objects;",
+                        "",
+                        "public final class FooSetters {",
+                        "    private FooSetters() {",
+                        "    }",
+                        "",
+                        "    public static boolean setAge(Foo target, int value) {",
+                        "        int oldValue = target.age;",
+                        "        if (oldValue == value) {",
+                        "            return false;",
+                        "        }",
+                        "        target.age = value;",
+                        "        target.notifyPropertyChanged(FooClassifiers.AGE, oldValue, value);",
+                        "        return true;",
+                        "    }",
+                        "",
+                        "    public static boolean setRatio(Foo target, float value) {",
+                        "        float oldValue = target.ratio;",
+                        "        if (Float.compare(oldValue, value) == 0) {",
+                        "            return false;",
+                        "        }",
+                        "        target.ratio = value;",
+                        "        target.notifyPropertyChanged(FooClassifiers.RATIO, oldValue, value);",
+                        "        return true;",
+                        "    }",
+                        "",
+                        "    public static boolean setFirstName(Foo target, String value) {",
+                        "        String oldValue = target.firstName;",
+                        "        if (Objects.equals(oldValue, value)) {",
+                        "            return false;",
+                        "        }",
+                        "        target.firstName = value;",
+                        "        target.notifyPropertyChanged(FooClassifiers.FIRST_NAME, oldValue, value);",
+                        "        return true;",
+                        "    }",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(OBSERVABLE, input);
+
+        assertThat(compilation).succeeded();
+
+        assertThat(compilation)
+                .generatedSourceFile("com.appolition.FooSetters")
+                .hasSourceEquivalentTo(output);
+    }
+
+    @Test
+    public void dispatcherGenerated() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo {",
+                        "    private String bar;",
+                        "",
+                        "    @Classifiable",
+                        "    public String getBar() {",
+                        "        return bar;",
+                        "    }",
+                        "",
+                        "    @Classifiable",
+                        "    public String getFirstName() {",
+                        "        return bar;",
+                        "    }",
+                        "}"));
+
+        final JavaFileObject output = JavaFileObjects.forSourceString(
+                "com.appolition.FooDispatcher",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable.observables.ClassifiedObservable;",
+                        "import com.appolition.classifiable.observables.ClassifierDispatcher;",
+                        "import java.lang.AssertionError;",
+                        "import java.lang.CloneNotSupportedException;",
+                        "import java.lang.Cloneable;",
+                        "import java.lang.IllegalArgumentException;",
+                        "import java.lang.Override;",
+                        "",
+                        "public final class FooDispatcher extends ClassifierDispatcher<FooClassifiers> implements Cloneable {",
+                        "    private ClassifiedObservable.OnPropertChangedCallback[] allCallbacks;",
+                        "",
+                        "    private ClassifiedObservable.OnPropertChangedCallback[] barCallbacks;",
+                        "",
+                        "    private ClassifiedObservable.OnPropertChangedCallback[] firstNameCallbacks;",
+                        "",
+                        "    public FooDispatcher() {",
+                        "    }",
+                        "",
+                        "    @Override",
+                        "    protected int slots() {",
+                        "        return 3;",
+                        "    }",
+                        "",
+                        "    @Override",
+                        "    protected ClassifiedObservable.OnPropertChangedCallback[] callbacks(int ordinal) {",
+                        "        switch (ordinal) {",
+                        "            case 0:",
+                        "                return allCallbacks;",
+                        "            case 1:",
+                        "                return barCallbacks;",
+                        "            case 2:",
+                        "                return firstNameCallbacks;",
+                        "            default:",
+                        "                return null;",
+                        "        }",
+                        "    }",
+                        "",
+                        "    @Override",
+                        "    protected FooDispatcher withCallbacks(int ordinal, ClassifiedObservable.OnPropertChangedCallback[] callbacks) {",
+                        "        FooDispatcher copy = copy();",
+                        "        switch (ordinal) {",
+                        "            case 0:",
+                        "                copy.allCallbacks = callbacks;",
+                        "                break;",
+                        "            case 1:",
+                        "                copy.barCallbacks = callbacks;",
+                        "                break;",
+                        "            case 2:",
+                        "                copy.firstNameCallbacks = callbacks;",
+                        "                break;",
+                        "            default:",
+                        "                throw new IllegalArgumentException(\"No classifier with ordinal \" + ordinal);",
+                        "        }",
+                        "        return copy;",
+                        "    }",
+                        "",
+                        "    @Override",
+                        "    protected void dispatch(int ordinal) {",
+                        "        switch (ordinal) {",
+                        "            case 0:",
+                        "                invokeAllCallbacks();",
+                        "                invokeBarCallbacks();",
+                        "                invokeFirstNameCallbacks();",
+                        "                break;",
+                        "            case 1:",
+                        "                invokeBarCallbacks();",
+                        "                break;",
+                        "            case 2:",
+                        "                invokeFirstNameCallbacks();",
+                        "                break;",
+                        "        }",
+                        "    }",
+                        "",
+                        "    private FooDispatcher copy() {",
+                        "        try {",
+                        "            return (FooDispatcher) clone();",
+                        "        } catch (CloneNotSupportedException excpt) {",
+                        "            throw new AssertionError(excpt);",
+                        "        }",
+                        "    }",
+                        "",
+                        "    private void invokeAllCallbacks() {",
+                        "        if (allCallbacks == null) {",
+                        "            return;",
+                        "        }",
+                        "        for (ClassifiedObservable.OnPropertChangedCallback callback : allCallbacks) {",
+                        "            if (callback != null) {",
+                        "                callback.onPropertyChanged();",
+                        "            }",
+                        "        }",
+                        "    }",
+                        "",
+                        "    private void invokeBarCallbacks() {",
+                        "        if (barCallbacks == null) {",
+                        "            return;",
+                        "        }",
+                        "        for (ClassifiedObservable.OnPropertChangedCallback callback : barCallbacks) {",
+                        "            if (callback != null) {",
+                        "                callback.onPropertyChanged();",
+                        "            }",
+                        "        }",
+                        "    }",
+                        "",
+                        "    private void invokeFirstNameCallbacks() {",
+                        "        if (firstNameCallbacks == null) {",
+                        "            return;",
+                        "        }",
+                        "        for (ClassifiedObservable.OnPropertChangedCallback callback : firstNameCallbacks) {",
+                        "            if (callback != null) {",
+                        "                callback.onPropertyChanged();",
+                        "            }",
+                        "        }",
+                        "    }",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(OBSERVABLE, DISPATCHER, input);
+
+        assertThat(compilation).succeeded();
+
+        assertThat(compilation)
+                .generatedSourceFile("com.appolition.FooDispatcher")
+                .hasSourceEquivalentTo(output);
+    }
+
+    @Test
+    public void manyMethodsAnnotated_DispatcherCompiles() {
+        String[] properties = new String[200];
+
+        for (int i = 0; i < properties.length; ++i) {
+            properties[i] = String.format("Property%d", i);
+        }
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(OBSERVABLE, DISPATCHER, annotatedClass("Big", properties));
+
+        assertThat(compilation).succeeded();
+
+        assertThat(compilation)
+                .generatedSourceFile("com.appolition.BigDispatcher")
+                .contentsAsUtf8String()
+                .contains("copy.property199Callbacks = callbacks;");
+    }
+
+    @Test
+    public void noDispatcherOnClasspath_NoDispatcherGenerated() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo {",
+                        "    private String bar;",
+                        "",
+                        "    @Classifiable",
+                        "    public String getBar() {",
+                        "        return bar;",
+                        "    }",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(input);
+
+        assertThat(compilation).succeeded();
+
+        assertFalse("Dispatcher was generated without ClassifierDispatcher", compilation.generatedSourceFile("com.appolition.FooDispatcher").isPresent());
+    }
+
+    @Test
+    public void methodsAnnotated_NoSettersGenerated() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo {",
+                        "    private String bar;",
+                        "",
+                        "    @Classifiable",
+                        "    public String getBar() {",
+                        "        return bar;",
+                        "    }",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(input);
+
+        assertThat(compilation).succeeded();
+
+        assertFalse("Setters were generated without annotated fields", compilation.generatedSourceFile("com.appolition.FooSetters").isPresent());
+    }
+
+    @Test
+    public void privateFieldAnnotated() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable.observables.ClassifiedObservable;",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo extends ClassifiedObservable<FooClassifiers> {",
+                        "    @Classifiable",
+                        "    private int count;",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(OBSERVABLE, input);
+
+        assertThat(compilation).failed();
+
+        assertThat(compilation)
+                .hadErrorContaining("only non-private fields may be annotated with Classifiable");
+    }
+
+    @Test
+    public void finalFieldAnnotated() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable.observables.ClassifiedObservable;",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo extends ClassifiedObservable<FooClassifiers> {",
+                        "    @Classifiable",
+                        "    final int count = 0;",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(OBSERVABLE, input);
+
+        assertThat(compilation).failed();
+
+        assertThat(compilation)
+                .hadErrorContaining("only non-final fields may be annotated with Classifiable");
+    }
+
+    @Test
+    public void fieldOutsideObservableAnnotated() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo {",
+                        "    @Classifiable",
+                        "    int count;",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(input);
+
+        assertThat(compilation).failed();
+
+        assertThat(compilation)
+                .hadErrorContaining("only fields of a ClassifiedObservable may be annotated with Classifiable");
+    }
+
+    @Test
+    public void fieldOfObservableOfOtherClassifiers() {
+        final JavaFileObject bar = JavaFileObjects.forSourceString(
+                "com.appolition.BarClassifiers",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "public enum BarClassifiers {",
+                        "    _ALL",
+                        "}"));
+
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable.observables.ClassifiedObservable;",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo extends ClassifiedObservable<BarClassifiers> {",
+                        "    @Classifiable",
+                        "    int age;",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(OBSERVABLE, bar, input);
+
+        assertThat(compilation).failed();
+
+        assertThat(compilation)
+                .hadErrorContaining("com.appolition.Foo.age: only fields of a ClassifiedObservable<FooClassifiers> may be annotated with Classifiable")
+                .inFile(input)
+                .onLine(8);
+    }
+
+    @Test
+    public void fieldOfObservableTypedThroughSuperclass() {
+        final JavaFileObject base = JavaFileObjects.forSourceString(
+                "com.appolition.Base",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable.observables.ClassifiedObservable;",
+                        "",
+                        "public class Base<ClassifiersType extends Enum<ClassifiersType>> extends ClassifiedObservable<ClassifiersType> {",
+                        "}"));
+
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo extends Base<FooClassifiers> {",
+                        "    @Classifiable",
+                        "    int age;",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(OBSERVABLE, base, input);
+
+        assertThat(compilation).succeeded();
+
+        assertThat(compilation)
+                .generatedSourceFile("com.appolition.FooSetters")
+                .contentsAsUtf8String()
+                .contains("target.notifyPropertyChanged(FooClassifiers.AGE, oldValue, value);");
+    }
+
+    @Test
+    public void fieldAndGetterWithSameClassifier() {
+        final JavaFileObject input = JavaFileObjects.forSourceString(
+                "com.appolition.Foo",
+                Joiner.on(NEW_LINE).join(
+                        "package com.appolition;",
+                        "",
+                        "import com.appolition.classifiable.observables.ClassifiedObservable;",
+                        "import com.appolition.classifiable_annotation.Classifiable;",
+                        "",
+                        "public class Foo extends ClassifiedObservable<FooClassifiers> {",
+                        "    @Classifiable",
+                        "    int url;",
+                        "",
+                        "    @Classifiable",
+                        "    public int getUrl() {",
+                        "        return url;",
+                        "    }",
+                        "}"));
+
+        Compilation compilation = javac()
+                .withProcessors(new ClassifiableProcessor())
+                .compile(OBSERVABLE, input);
+
+        assertThat(compilation).failed();
+
+        assertThat(compilation)
+                .hadErrorContaining("com.appolition.Foo.getUrl(): the classifier URL is already generated for com.appolition.Foo.url")
+                .inFile(input)
+                .onLine(11);
+    }
+
+    @Test
+    public void generatedTypes_SingleOriginatingElement() {
+        RecordingJavaFileWriter writer = process(annotatedClass("Foo", "Bar"), annotatedClass("Baz", "Qux"));
+
+        assertEquals("Types were not generated for both classes", 2, writer.getOriginatingElements().size());
+
+        for (Map.Entry<String, List<String>> entry : writer.getOriginatingElements().entrySet()) {
+            String owner = entry.getKey().startsWith("com.appolition.Foo") ? "com.appolition.Foo" : "com.appolition.Baz";
+
+            assertEquals(String.format("%s not tied to its class alone", entry.getKey()), Collections.singletonList(owner), entry.getValue());
+        }
+    }
+
+    @Test
+    public void unrelatedEdit_OtherClassifiersNotRegenerated() {
+        RecordingJavaFileWriter before = process(annotatedClass("Foo", "Bar"), annotatedClass("Baz", "Qux"));
+
+        RecordingJavaFileWriter edited = process(annotatedClass("Foo", "Bar", "Age"));
+
+        assertFalse("Classifiers of an unchanged class were regenerated", edited.getSources().containsKey("com.appolition.BazClassifiers"));
+
+        assertTrue("Classifiers of the edited class were not regenerated",
+                edited.getSources().get("com.appolition.FooClassifiers").contains("AGE"));
+
+        RecordingJavaFileWriter after = process(annotatedClass("Foo", "Bar", "Age"), annotatedClass("Baz", "Qux"));
+
+        assertEquals("Classifiers of an unchanged class depend on another class",
+                before.getSources().get("com.appolition.BazClassifiers"), after.getSources().get("com.appolition.BazClassifiers"));
+    }
+
+    @Test
+    public void generatedTypes_Deterministic() {
+        RecordingJavaFileWriter forward = process(annotatedClass("Foo", "Bar"), annotatedClass("Baz", "Qux"));
+        RecordingJavaFileWriter backward = process(annotatedClass("Baz", "Qux"), annotatedClass("Foo", "Bar"));
+
+        assertEquals("Generated types differ between runs", forward.getSources().keySet(), backward.getSources().keySet());
+
+        for (String type : forward.getSources().keySet()) {
+            assertEquals(String.format("%s differs between runs", type), forward.getSources().get(type), backward.getSources().get(type));
+        }
+    }
+
+    @Test
+    public void phaseListener_EachPhaseReported() {
+        Map<PhaseListener.Phase, Integer> reports = new EnumMap<>(PhaseListener.Phase.class);
+
+        ClassifiableProcessor processor = new ClassifiableProcessor(new ProcessingEnvironmentJavaFileWriter(),
+                (phase, nanos) -> reports.merge(phase, 1, Integer::sum));
+
+        Compilation compilation = javac()
+                .withProcessors(processor)
+                .compile(annotatedClass("Foo", "Bar", "Baz"));
+
+        assertThat(compilation).succeeded();
+
+        assertEquals("Validation not reported once per round", reports.get(PhaseListener.Phase.VALIDATE_USAGE), reports.get(PhaseListener.Phase.GENERATE_CODE));
+        assertEquals("Division not reported once per round", reports.get(PhaseListener.Phase.VALIDATE_USAGE), reports.get(PhaseListener.Phase.DIVIDE_CLASSES));
+        assertEquals("Name preparation not reported once per element", Integer.valueOf(2), reports.get(PhaseListener.Phase.PREPARE_ENUM_CONSTANT_NAME));
+    }
+
     @Test
     public void failingJavaFileWriter() {
         final JavaFileObject input = JavaFileObjects.forSourceString(
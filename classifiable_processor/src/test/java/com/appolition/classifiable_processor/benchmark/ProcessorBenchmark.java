@@ -0,0 +1,235 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_processor.benchmark;
+
+import com.appolition.classifiable_processor.ClassifiableProcessor;
+import com.appolition.classifiable_processor.PhaseListener;
+import com.appolition.classifiable_processor.writers.ProcessingEnvironmentJavaFileWriter;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.Compiler.javac;
+
+/**
+ * Measures the build time ClassifiableProcessor costs, compiling synthesized classes in process through
+ * compile-testing
+ *
+ * For each combination of a number of classes N and a number of annotated methods per class M, N classes with M
+ * methods each are compiled with the processor, and the wall time and bytes allocated by the compilation are
+ * reported along with the time spent in each phase of the processor. The wall time includes javac compiling the
+ * sources and the generated types, the phases only the processor
+ *
+ * A class cannot have more than METHODS_LIMIT annotated methods, beyond that the static initializer of its
+ * generated classifiers enum exceeds the 64KB limit of a method and javac fails with "code too large". Larger
+ * models are measured through the number of classes instead, combinations with more than TOTAL_METHODS_LIMIT methods
+ * in total are skipped
+ *
+ * Run with ./gradlew :classifiable_processor:processorBenchmark -PbenchmarkClasses=1000,10000 -PbenchmarkMethods=10,100
+ */
+public final class ProcessorBenchmark {
+    /**
+     * The package of the synthesized classes
+     */
+    private static final String PACKAGE = "com.appolition.benchmark";
+
+    /**
+     * The number of times each combination is compiled, the first compilation of the harness warms javac up
+     */
+    private static final int ITERATIONS = Integer.getInteger("iterations", 1);
+
+    /**
+     * The largest number of annotated methods of a class, its generated classifiers enum fails to compile with 1935
+     */
+    private static final int METHODS_LIMIT = 1900;
+
+    /**
+     * The largest number of annotated methods compiled at once, larger combinations are skipped
+     */
+    private static final int TOTAL_METHODS_LIMIT = Integer.getInteger("totalMethods", 100000);
+
+    private ProcessorBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args, the comma separated numbers of classes and the comma separated numbers of methods per class,
+     *              10,100,1000,10000 and 10,100,1000,1900 if not specified
+     */
+    public static void main(String[] args) {
+        int[] classCounts = parse(args.length > 0 ? args[0] : "10,100,1000,10000");
+        int[] methodCounts = parse(args.length > 1 ? args[1] : "10,100,1000," + METHODS_LIMIT);
+
+        for (int methods : methodCounts) {
+            if (methods > METHODS_LIMIT) {
+                throw new IllegalArgumentException(String.format("%d methods per class, the generated classifiers enum is too large beyond %d",
+                        methods, METHODS_LIMIT));
+            }
+        }
+
+        run(10, 10);
+
+        System.out.println(String.format("%8s %8s %10s %12s %14s %14s %14s %14s", "classes", "methods", "wall ms", "alloc MB",
+                "validate ms", "divide ms", "generate ms", "names ms"));
+
+        for (int classes : classCounts) {
+            for (int methods : methodCounts) {
+                if ((long) classes * methods > TOTAL_METHODS_LIMIT) {
+                    System.out.println(String.format("%8d %8d %10s", classes, methods, "skipped"));
+
+                    continue;
+                }
+
+                for (int iteration = 0; iteration < ITERATIONS; ++iteration) {
+                    Result result = run(classes, methods);
+
+                    System.out.println(String.format("%8d %8d %10.1f %12.1f %14.2f %14.2f %14.2f %14.2f", classes, methods,
+                            result.wallNanos / 1e6, result.allocatedBytes / (1024.0 * 1024.0),
+                            result.phaseNanos.get(PhaseListener.Phase.VALIDATE_USAGE) / 1e6,
+                            result.phaseNanos.get(PhaseListener.Phase.DIVIDE_CLASSES) / 1e6,
+                            result.phaseNanos.get(PhaseListener.Phase.GENERATE_CODE) / 1e6,
+                            result.phaseNanos.get(PhaseListener.Phase.PREPARE_ENUM_CONSTANT_NAME) / 1e6));
+                }
+            }
+        }
+    }
+
+    /**
+     * Compiles synthesized classes with the processor
+     *
+     * @param classes, the number of classes
+     * @param methods, the number of annotated methods of each class
+     *
+     * @return Result, the measurements
+     */
+    private static Result run(int classes, int methods) {
+        List<JavaFileObject> sources = synthesize(classes, methods);
+
+        Result result = new Result();
+
+        ClassifiableProcessor processor = new ClassifiableProcessor(new ProcessingEnvironmentJavaFileWriter(),
+                (phase, nanos) -> result.phaseNanos.merge(phase, nanos, Long::sum));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long thread = Thread.currentThread().getId();
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+
+        Compilation compilation = javac()
+                .withProcessors(processor)
+                .compile(sources);
+
+        result.wallNanos = System.nanoTime() - start;
+        result.allocatedBytes = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        if (!compilation.errors().isEmpty()) {
+            throw new IllegalStateException(String.format("Compiling %d classes with %d methods failed: %s", classes, methods, compilation.errors()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Synthesizes classes with annotated methods
+     *
+     * @param classes, the number of classes
+     * @param methods, the number of annotated methods of each class
+     *
+     * @return List<JavaFileObject>, the sources of the classes
+     */
+    private static List<JavaFileObject> synthesize(int classes, int methods) {
+        List<JavaFileObject> sources = new ArrayList<>(classes);
+
+        for (int c = 0; c < classes; ++c) {
+            StringBuilder source = new StringBuilder()
+                    .append("package ").append(PACKAGE).append(";\n\n")
+                    .append("import com.appolition.classifiable_annotation.Classifiable;\n\n")
+                    .append("public class Model").append(c).append(" {\n");
+
+            for (int m = 0; m < methods; ++m) {
+                source.append("    @Classifiable\n")
+                        .append("    public int getPropertyValue").append(m).append("() {\n")
+                        .append("        return ").append(m).append(";\n")
+                        .append("    }\n\n");
+            }
+
+            source.append("}\n");
+
+            sources.add(JavaFileObjects.forSourceString(String.format("%s.Model%d", PACKAGE, c), source.toString()));
+        }
+
+        return sources;
+    }
+
+    /**
+     * Parses a comma separated list of numbers
+     *
+     * @param list, the list to parse
+     *
+     * @return int[], the numbers
+     */
+    private static int[] parse(String list) {
+        String[] values = list.split(",");
+
+        int[] numbers = new int[values.length];
+
+        for (int i = 0; i < values.length; ++i) {
+            numbers[i] = Integer.parseInt(values[i].trim());
+        }
+
+        return numbers;
+    }
+
+    /**
+     * The measurements of a compilation
+     */
+    private static final class Result {
+        /**
+         * The time the compilation took in nanoseconds
+         */
+        long wallNanos;
+
+        /**
+         * The bytes allocated by the compiling thread
+         */
+        long allocatedBytes;
+
+        /**
+         * The time spent in each phase of the processor in nanoseconds
+         */
+        final Map<PhaseListener.Phase, Long> phaseNanos = new EnumMap<>(PhaseListener.Phase.class);
+
+        Result() {
+            for (PhaseListener.Phase phase : PhaseListener.Phase.values()) {
+                phaseNanos.put(phase, 0L);
+            }
+        }
+    }
+}
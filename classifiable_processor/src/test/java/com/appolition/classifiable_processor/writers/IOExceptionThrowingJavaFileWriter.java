@@ -8,7 +8,7 @@ import javax.annotation.processing.Filer;
 
 public class IOExceptionThrowingJavaFileWriter implements JavaFileWriter {
     @Override
-    public void writeTo(String packageName, TypeSpec.Builder enumBuilder, Filer filer) throws IOException {
+    public void writeTo(String packageName, TypeSpec.Builder typeBuilder, Filer filer) throws IOException {
         throw new IOException("Failed on purpose");
     }
 }
@@ -0,0 +1,81 @@
+/**Copyright 2019 Thomas Lahoda
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.appolition.classifiable_processor.writers;
+
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Records the source and originating elements of each type it writes before writing it to the filer
+ */
+public class RecordingJavaFileWriter implements JavaFileWriter {
+    private final JavaFileWriter delegate = new ProcessingEnvironmentJavaFileWriter();
+
+    private final Map<String, String> sources = new LinkedHashMap<>();
+
+    private final Map<String, List<String>> originatingElements = new LinkedHashMap<>();
+
+    @Override
+    public void writeTo(String packageName, TypeSpec.Builder typeBuilder, Filer filer) throws IOException {
+        TypeSpec typeSpec = typeBuilder.build();
+
+        String qualifiedName = String.format("%s.%s", packageName, typeSpec.name);
+
+        sources.put(qualifiedName, JavaFile.builder(packageName, typeSpec).indent("    ").build().toString());
+
+        List<String> names = new ArrayList<>();
+
+        for (Element element : typeSpec.originatingElements) {
+            names.add(((TypeElement) element).getQualifiedName().toString());
+        }
+
+        originatingElements.put(qualifiedName, names);
+
+        delegate.writeTo(packageName, typeBuilder, filer);
+    }
+
+    /**
+     * Gets the sources written
+     *
+     * @return Map<String, String>, the sources by qualified type name, in the order they were written
+     */
+    public Map<String, String> getSources() {
+        return sources;
+    }
+
+    /**
+     * Gets the originating elements of the types written
+     *
+     * @return Map<String, List<String>>, the qualified names of the originating elements by qualified type name
+     */
+    public Map<String, List<String>> getOriginatingElements() {
+        return originatingElements;
+    }
+}